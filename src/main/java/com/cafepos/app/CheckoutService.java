@@ -1,20 +1,36 @@
 package com.cafepos.app;
 import com.cafepos.domain.*;
+import com.cafepos.pricing.Basket;
 import com.cafepos.pricing.PricingService;
+import java.time.Clock;
+import java.time.LocalTime;
 
 public final class CheckoutService {
     private final OrderRepository orders;
     private final PricingService pricing;
+    private final Clock clock;
+    private final ReceiptFormatter formatter = new ReceiptFormatter();
 
     public CheckoutService(OrderRepository orders, PricingService pricing) {
+        this(orders, pricing, Clock.systemDefaultZone());
+    }
+
+    /** {@code clock} gives the time of day that happy-hour rules see. */
+    public CheckoutService(OrderRepository orders, PricingService pricing, Clock clock) {
         this.orders = orders;
         this.pricing = pricing;
+        this.clock = clock;
     }
 
     /** Returns a receipt string; does NOT print. */
     public String checkout(long orderId, int taxPercent) {
+        return checkout(orderId, taxPercent, false, null);
+    }
+
+    /** As {@link #checkout(long, int)} for a loyalty customer and/or with a coupon code (may be null). */
+    public String checkout(long orderId, int taxPercent, boolean loyalCustomer, String coupon) {
         Order order = orders.findById(orderId).orElseThrow();
-        var pr = pricing.price(order.subtotal());
-        return new ReceiptFormatter().format(orderId, order.items(), pr, taxPercent); 
+        var basket = new Basket(order.items(), LocalTime.now(clock), loyalCustomer, coupon);
+        return formatter.format(orderId, pricing.price(basket), taxPercent);
     }
 }
\ No newline at end of file
@@ -1,23 +1,26 @@
 package com.cafepos.app;
 
 import com.cafepos.domain.LineItem;
+import com.cafepos.pricing.PricingService.OrderPricing;
 import com.cafepos.pricing.PricingService.PricingResult;
+import com.cafepos.printing.ReceiptTemplate;
 import java.util.List;
 
 public final class ReceiptFormatter {
+    private static final ReceiptTemplate LAYOUT = ReceiptTemplate.compile(
+            "Order #{id}\n"
+          + " - {item} x{itemQty} = {lineTotal}\n"
+          + "Subtotal: {subtotal}\n"
+          + "Discount: -{discount}\n"
+          + "Tax ({taxPercent}%): {tax}\n"
+          + "Total: {total}");
+
     public String format(long id, List<LineItem> items, PricingResult pr, int taxPercent) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("Order #").append(id).append("\n");
-        for (LineItem li : items) {
-            sb.append(" - ").append(li.product().name()).append(" x").append(li.quantity())
-              .append(" = ").append(li.lineTotal()).append("\n");
-        }
-        sb.append("Subtotal: ").append(pr.subtotal()).append("\n");
-        if (pr.discount().asBigDecimal().signum() > 0) {
-            sb.append("Discount: -").append(pr.discount()).append("\n");
-        }
-        sb.append("Tax (").append(taxPercent).append("%): ").append(pr.tax()).append("\n");
-        sb.append("Total: ").append(pr.total());
-        return sb.toString();
+        return LAYOUT.render(id, items, pr, taxPercent);
+    }
+
+    /** Formats a line-priced order, reusing its line totals instead of recomputing them. */
+    public String format(long id, OrderPricing pricing, int taxPercent) {
+        return LAYOUT.render(id, pricing, taxPercent);
     }
-}
\ No newline at end of file
+}
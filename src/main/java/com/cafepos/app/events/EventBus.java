@@ -1,18 +1,228 @@
 package com.cafepos.app.events;
 
-import java.util.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
-public final class EventBus {
-    private final Map<Class<?>, List<Consumer<?>>> handlers = new HashMap<>();
+/**
+ * Thread-safe event bus. {@link #emit} claims a slot in a preallocated ring and returns; one
+ * consumer thread drains whatever has been published in batches and runs the handlers, so
+ * handlers never run on the emitting thread and see events in the order their slots were
+ * claimed. A handler registered for a type also receives its subtypes (e.g. a handler for
+ * {@link OrderEvent} gets both {@link OrderCreated} and {@link OrderPaid}); the handlers for
+ * each concrete event class are worked out once and cached until the next {@link #on}.
+ *
+ * When the ring is full, emitters wait for the consumer. A handler that emits into a full ring
+ * has its event dispatched inline instead, since the consumer cannot wait for itself.
+ *
+ * With an {@link EventJournal}, the consumer appends every {@link OrderEvent} of a batch to the
+ * journal before running its handlers, so consumers that were down can catch up from the
+ * journal. Inline-dispatched events are journaled too. A handler registered with
+ * {@link #on(Class, BiConsumer)} is also given each event's journal offset, so it can store the
+ * offset of the last event it handled and later {@link EventJournal#replay} from the one after.
+ *
+ * Every {@link #emit} that returns normally is handled: an emitter registers itself before it
+ * checks {@code closed}, and the consumer only stops once the bus is closed and no emitter is
+ * still between that check and publishing its slot.
+ */
+public final class EventBus implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 1024;
+    private static final long PARK_NANOS = 100_000;
 
+    /** A handler with the event's journal offset, or -1 if the event was not journaled. */
+    private interface Handler {
+        void accept(Object event, long offset);
+    }
+
+    private record Subscription(Class<?> type, Handler handler) {}
+
+    private final Object[] ring;
+    private final long[] offsets; // journal offset of each slot's event; consumer thread only
+    private final AtomicLongArray published; // sequence last written to each slot
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private volatile long consumed = -1;
+    private volatile boolean consumerParked;
+    private volatile boolean closed;
+    private final AtomicInteger emitting = new AtomicInteger();
+    private final Thread consumer;
+    private final EventJournal journal;
+
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile Map<Class<?>, Handler[]> dispatch = new ConcurrentHashMap<>();
+    private final LongAdder failures = new LongAdder();
+
+    public EventBus() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /** {@code capacity} is rounded up to a power of two. */
+    public EventBus(int capacity) {
+        this(capacity, null);
+    }
+
+    /** Bus that journals every {@link OrderEvent}; {@code journal} may be null. */
+    public EventBus(int capacity, EventJournal journal) {
+        if (capacity <= 0 || capacity > 1 << 30) throw new IllegalArgumentException("capacity must be 1..2^30");
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.ring = new Object[size];
+        this.offsets = new long[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) published.set(i, -1);
+        this.mask = size - 1;
+        this.journal = journal;
+        this.consumer = new Thread(this::drain, "event-bus");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @SuppressWarnings("unchecked")
     public <T> void on(Class<T> type, Consumer<T> h) {
-        handlers.computeIfAbsent(type, k -> new ArrayList<>()).add(h);
+        if (type == null || h == null) throw new IllegalArgumentException("type and handler required");
+        Consumer<Object> handler = (Consumer<Object>) h;
+        subscribe(new Subscription(type, (event, offset) -> handler.accept(event)));
     }
 
+    /**
+     * Registers a handler that also gets the journal offset each event was appended at, or -1 for
+     * events that were not journaled (no journal, not an {@link OrderEvent}, or the append failed).
+     */
     @SuppressWarnings("unchecked")
+    public <T> void on(Class<T> type, BiConsumer<Long, T> h) {
+        if (type == null || h == null) throw new IllegalArgumentException("type and handler required");
+        BiConsumer<Long, Object> handler = (BiConsumer<Long, Object>) h;
+        subscribe(new Subscription(type, (event, offset) -> handler.accept(offset, event)));
+    }
+
+    private void subscribe(Subscription s) {
+        subscriptions.add(s);
+        dispatch = new ConcurrentHashMap<>(); // tables built from here on include it
+    }
+
     public <T> void emit(T event) {
-        var list = handlers.getOrDefault(event.getClass(), List.of());
-        for (var h : list) ((Consumer<T>) h).accept(event);
+        if (event == null) throw new IllegalArgumentException("event required");
+        emitting.incrementAndGet();
+        try {
+            if (closed) throw new IllegalStateException("event bus closed");
+            publish(event);
+        } finally {
+            emitting.decrementAndGet();
+        }
+    }
+
+    private void publish(Object event) {
+        long seq;
+        if (Thread.currentThread() == consumer) {
+            do {
+                seq = claimed.get();
+                if (seq + 1 - ring.length > consumed) {
+                    dispatch(event, journal(event));
+                    return;
+                }
+            } while (!claimed.compareAndSet(seq, seq + 1));
+            seq++;
+        } else {
+            seq = claimed.incrementAndGet();
+            while (seq - ring.length > consumed && consumer.isAlive()) LockSupport.parkNanos(PARK_NANOS);
+        }
+        int slot = (int) seq & mask;
+        ring[slot] = event;
+        published.set(slot, seq);
+        if (consumerParked) LockSupport.unpark(consumer);
+    }
+
+    /** Waits until every event emitted before this call has been handled. */
+    public void flush() {
+        if (Thread.currentThread() == consumer) return;
+        long target = claimed.get();
+        while (consumed < target && consumer.isAlive()) LockSupport.parkNanos(PARK_NANOS);
+    }
+
+    /** Stops accepting events, handles those already emitted, then stops the consumer thread. */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(consumer);
+        if (Thread.currentThread() == consumer) return;
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Number of handler invocations (and journal writes) that threw. */
+    public long failures() {
+        return failures.sum();
+    }
+
+    private void drain() {
+        long next = 0;
+        while (true) {
+            long last = next - 1;
+            while (published.get((int) (last + 1) & mask) == last + 1) last++;
+            if (last < next) {
+                if (closed && emitting.get() == 0 && claimed.get() < next) return; // emitting first: see emit
+                consumerParked = true;
+                if (published.get((int) next & mask) != next && !closed) LockSupport.parkNanos(this, 1_000_000);
+                consumerParked = false;
+                continue;
+            }
+            if (journal != null) {
+                for (long s = next; s <= last; s++) offsets[(int) s & mask] = journal(ring[(int) s & mask]);
+                flushJournal();
+            }
+            for (long s = next; s <= last; s++) {
+                int slot = (int) s & mask;
+                Object event = ring[slot];
+                ring[slot] = null;
+                dispatch(event, journal == null ? -1 : offsets[slot]);
+            }
+            consumed = last;
+            next = last + 1;
+        }
+    }
+
+    /** Appends an {@link OrderEvent} to the journal and returns its offset, or -1 if it was not journaled. */
+    private long journal(Object event) {
+        if (journal == null || !(event instanceof OrderEvent e)) return -1;
+        try {
+            return journal.append(e);
+        } catch (RuntimeException ex) {
+            failures.increment();
+            return -1;
+        }
+    }
+
+    private void flushJournal() {
+        try {
+            journal.flush();
+        } catch (RuntimeException ex) {
+            failures.increment();
+        }
+    }
+
+    private void dispatch(Object event, long offset) {
+        for (Handler h : dispatch.computeIfAbsent(event.getClass(), this::handlersFor)) {
+            try {
+                h.accept(event, offset);
+            } catch (RuntimeException e) {
+                failures.increment(); // keep the consumer alive for the other handlers and events
+            }
+        }
+    }
+
+    private Handler[] handlersFor(Class<?> type) {
+        return subscriptions.stream()
+                .filter(s -> s.type().isAssignableFrom(type))
+                .map(Subscription::handler)
+                .toArray(Handler[]::new);
     }
-}
\ No newline at end of file
+}
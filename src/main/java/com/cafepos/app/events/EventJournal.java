@@ -0,0 +1,275 @@
+package com.cafepos.app.events;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of {@link OrderEvent}s. Every event gets the next offset (0, 1, 2, ...), so a
+ * consumer that stores the offset after the last event it handled can {@link #replay} from there
+ * after a restart.
+ *
+ * Records have a fixed size ({@code long offset, byte type, long orderId, int crc}), so an
+ * offset maps straight to a file position and reads fetch many records with one call. The log is
+ * split into segments of {@code recordsPerSegment} records named after their first offset.
+ * Appends are buffered and written when the buffer fills or on {@link #flush}; {@link #sync}
+ * also forces them to disk. A write that fails keeps the buffered records and is retried by the
+ * next flush, so every offset handed out still ends up holding its event; while the buffer is
+ * full and cannot be written, {@link #append} fails without taking an offset. A torn or corrupt
+ * tail is cut off when the journal is opened.
+ */
+public final class EventJournal implements Closeable {
+    public static final int DEFAULT_RECORDS_PER_SEGMENT = 1 << 20;
+    public static final int DEFAULT_BATCH = 4096;
+
+    static final int RECORD = Long.BYTES + 1 + Long.BYTES + Integer.BYTES;
+    private static final byte CREATED = 1, PAID = 2;
+
+    /** An event and the offset it was journaled at. */
+    public static record Entry(long offset, OrderEvent event) {}
+
+    /** Opens a segment file for reading and writing, creating it if needed. */
+    @FunctionalInterface
+    public interface SegmentOpener {
+        FileChannel open(Path file) throws IOException;
+    }
+
+    private static final SegmentOpener FILES = file -> FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+    private final Path dir;
+    private final int recordsPerSegment;
+    private final SegmentOpener opener;
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    private final CRC32C crc = new CRC32C();
+    private final ByteBuffer pending = ByteBuffer.allocate(RECORD * 1024);
+    private FileChannel active;
+    private long activeBase;
+    private long nextOffset;
+    private long writtenOffset; // records below this are in the file
+
+    private EventJournal(Path dir, int recordsPerSegment, SegmentOpener opener) throws IOException {
+        this.dir = dir;
+        this.recordsPerSegment = recordsPerSegment;
+        this.opener = opener;
+        Files.createDirectories(dir);
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(p -> p.getFileName().toString().matches("events-\\d{20}\\.log"))
+                 .forEach(p -> segments.put(baseOf(p), p));
+        }
+        if (segments.isEmpty()) segments.put(0L, segmentPath(0));
+        activeBase = segments.lastKey();
+        active = opener.open(segments.lastEntry().getValue());
+        nextOffset = activeBase + recover();
+        writtenOffset = nextOffset;
+    }
+
+    public static EventJournal open(Path dir) {
+        return open(dir, DEFAULT_RECORDS_PER_SEGMENT);
+    }
+
+    public static EventJournal open(Path dir, int recordsPerSegment) {
+        return open(dir, recordsPerSegment, FILES);
+    }
+
+    /** Opens the journal with segment files opened by {@code opener}, e.g. to wrap them for testing. */
+    public static EventJournal open(Path dir, int recordsPerSegment, SegmentOpener opener) {
+        if (dir == null) throw new IllegalArgumentException("dir required");
+        if (recordsPerSegment <= 0) throw new IllegalArgumentException("recordsPerSegment must be > 0");
+        if (opener == null) throw new IllegalArgumentException("opener required");
+        try {
+            return new EventJournal(dir, recordsPerSegment, opener);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open event journal in " + dir, e);
+        }
+    }
+
+    /** Appends {@code event} and returns its offset. */
+    public synchronized long append(OrderEvent event) {
+        if (event == null) throw new IllegalArgumentException("event required");
+        if (nextOffset - activeBase == recordsPerSegment) roll();
+        if (!pending.hasRemaining()) flush(); // throws before an offset is taken if the write fails
+        long offset = nextOffset++;
+        byte type;
+        long orderId;
+        if (event instanceof OrderCreated c) {
+            type = CREATED;
+            orderId = c.orderId();
+        } else {
+            type = PAID;
+            orderId = ((OrderPaid) event).orderId();
+        }
+        int start = pending.position();
+        pending.putLong(offset).put(type).putLong(orderId);
+        crc.reset();
+        crc.update(pending.array(), start, RECORD - Integer.BYTES);
+        pending.putInt((int) crc.getValue());
+        return offset;
+    }
+
+    /** Offset the next appended event will get. */
+    public synchronized long nextOffset() {
+        return nextOffset;
+    }
+
+    /** Writes buffered events to the file (not necessarily to disk); on failure they stay buffered. */
+    public synchronized void flush() {
+        if (pending.position() == 0) return;
+        int buffered = pending.position();
+        pending.flip();
+        try {
+            long pos = (writtenOffset - activeBase) * RECORD;
+            while (pending.hasRemaining()) pos += active.write(pending, pos);
+        } catch (IOException e) {
+            // the next flush writes the whole buffer again at the same position
+            pending.limit(pending.capacity()).position(buffered);
+            throw new UncheckedIOException("Could not write event journal", e);
+        }
+        pending.clear();
+        writtenOffset = nextOffset;
+    }
+
+    /** Writes buffered events and forces them to disk. */
+    public synchronized void sync() {
+        flush();
+        try {
+            active.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not sync event journal", e);
+        }
+    }
+
+    /**
+     * Reads up to {@code max} events starting at {@code fromOffset}, in offset order, with one
+     * read per segment touched. Returns an empty list once {@code fromOffset} reaches the end.
+     */
+    public synchronized List<Entry> read(long fromOffset, int max) {
+        if (fromOffset < 0) throw new IllegalArgumentException("offset must be >= 0");
+        if (max <= 0) throw new IllegalArgumentException("max must be > 0");
+        flush();
+        var out = new ArrayList<Entry>((int) Math.min(max, Math.max(0, nextOffset - fromOffset)));
+        long offset = fromOffset;
+        while (out.size() < max && offset < nextOffset) {
+            Map.Entry<Long, Path> seg = segments.floorEntry(offset);
+            long base = seg.getKey();
+            long end = Math.min(nextOffset, base + recordsPerSegment);
+            int n = (int) Math.min(max - out.size(), end - offset);
+            ByteBuffer buf = ByteBuffer.allocate(n * RECORD);
+            try {
+                if (base == activeBase) readFully(active, buf, (offset - base) * RECORD);
+                else try (FileChannel ch = FileChannel.open(seg.getValue(), StandardOpenOption.READ)) {
+                    readFully(ch, buf, (offset - base) * RECORD);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read event journal", e);
+            }
+            buf.flip();
+            for (int i = 0; i < n; i++) {
+                Entry entry = decode(buf);
+                if (entry == null || entry.offset() != offset) {
+                    throw new IllegalStateException("event journal corrupt at offset " + offset);
+                }
+                out.add(entry);
+                offset++;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Feeds every event from {@code fromOffset} to the current end to {@code sink}, reading in
+     * batches. Returns the offset to resume from next time.
+     */
+    public long replay(long fromOffset, Consumer<? super Entry> sink) {
+        long offset = fromOffset;
+        while (true) {
+            List<Entry> batch = read(offset, DEFAULT_BATCH);
+            if (batch.isEmpty()) return offset;
+            for (Entry e : batch) sink.accept(e);
+            offset = batch.get(batch.size() - 1).offset() + 1;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        sync();
+        try {
+            active.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void roll() {
+        flush();
+        try {
+            active.force(false);
+            active.close();
+            activeBase = nextOffset;
+            Path p = segmentPath(activeBase);
+            segments.put(activeBase, p);
+            active = opener.open(p);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not roll event journal", e);
+        }
+    }
+
+    /** Counts the valid records in the active segment, cutting off a torn or corrupt tail. */
+    private long recover() throws IOException {
+        long records = active.size() / RECORD;
+        ByteBuffer buf = ByteBuffer.allocate(RECORD);
+        while (records > 0) {
+            buf.clear();
+            readFully(active, buf, (records - 1) * RECORD);
+            buf.flip();
+            Entry last = decode(buf);
+            if (last != null && last.offset() == activeBase + records - 1) break;
+            records--;
+        }
+        active.truncate(records * RECORD);
+        return records;
+    }
+
+    /** Decodes the record at the buffer's position, or returns null if its checksum is wrong. */
+    private Entry decode(ByteBuffer buf) {
+        int start = buf.position();
+        crc.reset();
+        crc.update(buf.array(), start, RECORD - Integer.BYTES);
+        long offset = buf.getLong();
+        byte type = buf.get();
+        long orderId = buf.getLong();
+        if (buf.getInt() != (int) crc.getValue()) return null;
+        return switch (type) {
+            case CREATED -> new Entry(offset, new OrderCreated(orderId));
+            case PAID -> new Entry(offset, new OrderPaid(orderId));
+            default -> null;
+        };
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, pos);
+            if (n < 0) throw new IOException("unexpected end of event journal");
+            pos += n;
+        }
+    }
+
+    private Path segmentPath(long base) {
+        return dir.resolve(String.format("events-%020d.log", base));
+    }
+
+    private static long baseOf(Path p) {
+        String name = p.getFileName().toString();
+        return Long.parseLong(name.substring("events-".length(), name.length() - ".log".length()));
+    }
+}
@@ -0,0 +1,69 @@
+package com.cafepos.catalog;
+
+import java.util.*;
+
+/** Immutable, versioned view of a catalog. Build changes with {@link #toBuilder()}. */
+public final class CatalogSnapshot {
+    static final CatalogSnapshot EMPTY = new CatalogSnapshot(Map.of(), 0);
+
+    private final Map<String, Product> byId;
+    private final long version;
+
+    private CatalogSnapshot(Map<String, Product> byId, long version) {
+        this.byId = byId;
+        this.version = version;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public Optional<Product> findById(String id) {
+        if (id == null) return Optional.empty(); // Map.copyOf rejects null lookups
+        return Optional.ofNullable(byId.get(id));
+    }
+
+    public Collection<Product> products() {
+        return byId.values();
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /** Starts the next version from this one; the snapshot itself is unaffected. */
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    public static final class Builder {
+        private final Map<String, Product> byId;
+        private final long version;
+
+        private Builder(CatalogSnapshot base) {
+            this.byId = new HashMap<>(base.byId);
+            this.version = base.version + 1;
+        }
+
+        public Builder put(Product p) {
+            if (p == null)
+                throw new IllegalArgumentException("product required");
+            byId.put(p.id(), p);
+            return this;
+        }
+
+        public Builder remove(String id) {
+            byId.remove(id);
+            return this;
+        }
+
+        public Builder clear() {
+            byId.clear();
+            return this;
+        }
+
+        public CatalogSnapshot build() {
+            return new CatalogSnapshot(Map.copyOf(byId), version);
+        }
+    }
+}
@@ -1,19 +1,39 @@
 package com.cafepos.catalog;
 
-import java.util.*;
+import java.util.Optional;
+import java.util.function.Consumer;
 
+/**
+ * Catalog published as immutable {@link CatalogSnapshot}s through one volatile reference.
+ * Lookups never lock and always see a complete version; writers build the next version
+ * off to the side and swap it in, one writer at a time.
+ */
 public final class InMemoryCatalog implements Catalog {
-    private final Map<String, Product> byId = new HashMap<>();
+    private volatile CatalogSnapshot current = CatalogSnapshot.EMPTY;
 
     @Override
     public void add(Product p) {
         if (p == null)
             throw new IllegalArgumentException("product required");
-        byId.put(p.id(), p);
+        update(b -> b.put(p));
     }
 
     @Override
     public Optional<Product> findById(String id) {
-        return Optional.ofNullable(byId.get(id));
+        return current.findById(id);
     }
-}
\ No newline at end of file
+
+    /** The current version; keep it to read several products consistently. */
+    public CatalogSnapshot snapshot() {
+        return current;
+    }
+
+    /** Applies a bulk change (price list, menu swap) and publishes it atomically. */
+    public synchronized CatalogSnapshot update(Consumer<CatalogSnapshot.Builder> changes) {
+        CatalogSnapshot.Builder next = current.toBuilder();
+        changes.accept(next);
+        CatalogSnapshot published = next.build();
+        current = published;
+        return published;
+    }
+}
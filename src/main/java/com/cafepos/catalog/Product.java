@@ -6,4 +6,11 @@ public interface Product {
     String id();
     String name();
     Money basePrice();
+
+    /** Pricing group, e.g. {@code "DRINK"} or {@code "FOOD"}; tax rates and exclusions key on it. */
+    default String category() {
+        return GENERAL;
+    }
+
+    String GENERAL = "GENERAL";
 }
\ No newline at end of file
@@ -9,8 +9,13 @@ public final class SimpleProduct implements Product, Priced {
     private final String id;
     private final String name;
     private final Money basePrice;
+    private final String category;
 
-    public SimpleProduct (String id, String name, Money basePrice)
+    public SimpleProduct (String id, String name, Money basePrice) {
+        this(id, name, basePrice, GENERAL);
+    }
+
+    public SimpleProduct (String id, String name, Money basePrice, String category)
     { if (id == null || id.trim().isEmpty()) {
             throw new IllegalArgumentException("id required");
         }
@@ -20,10 +25,13 @@ public final class SimpleProduct implements Product, Priced {
         if (basePrice == null) {
             throw new IllegalArgumentException("basePrice required");
         }
-        
+        if (category == null || category.isBlank()) {
+            throw new IllegalArgumentException("category required");
+        }
         this.id = id;
         this.name = name;
         this.basePrice = basePrice;
+        this.category = category;
     }
 
     @Override
@@ -41,6 +49,11 @@ public final class SimpleProduct implements Product, Priced {
         return basePrice;
     }
 
+    @Override
+    public String category() {
+        return category;
+    }
+
     @Override
     public Money price() {
         return basePrice;
@@ -7,8 +7,12 @@ import com.cafepos.domain.Order;
 import com.cafepos.domain.OrderIds;
 import com.cafepos.factory.ProductFactory;
 import com.cafepos.payment.PaymentStrategy;
+import com.cafepos.pricing.Basket;
 import com.cafepos.pricing.PricingService;
 
+import java.time.LocalTime;
+import java.util.List;
+
 
 public final class CheckoutService {
     private final ProductFactory factory;
@@ -26,17 +30,15 @@ public final class CheckoutService {
     public String checkout(String recipe, int qty, PaymentStrategy paymentStrategy) {
         Product product = factory.create(recipe);
         if (qty <= 0) qty = 1;
-        Money unit = (product instanceof com.cafepos.decorator.Priced p) ? p.price() : product.basePrice();
-        Money subtotal = unit.multiply(qty);
-        var result = pricing.price(subtotal);
+        LineItem line = new LineItem(product, qty);
+        var result = pricing.price(Basket.of(List.of(line), LocalTime.now())).totals();
         
         // Create order for payment processing
         Order order = new Order(OrderIds.next());
-        order.addItem(new LineItem(product, qty));
+        order.addItem(line);
         
-        // Adapt to your Week-3 signature; if your strategy expects an Order, pass the real one here.
-        // If your strategy prints based on totals, wrap in a tiny adapter and call after pricing.
-        paymentStrategy.pay(order);
+        // Charge exactly what was priced above; strategies never re-price the order.
+        order.pay(paymentStrategy, result.total());
         
         if (paymentStrategy instanceof com.cafepos.payment.CashPayment cashPayment && 
             cashPayment.getCashAmount() != null) {
@@ -2,35 +2,27 @@ package com.cafepos.checkout;
 
 import com.cafepos.common.Money;
 import com.cafepos.pricing.PricingService;
+import com.cafepos.printing.ReceiptTemplate;
 
 public final class ReceiptPrinter {
+    private static final ReceiptTemplate LAYOUT = ReceiptTemplate.compile(
+            "Order ({recipe}) x{qty}\n"
+          + "Subtotal: {subtotal}\n"
+          + "Discount: -{discount}\n"
+          + "Tax ({taxPercent}%): {tax}\n"
+          + "Total: {total}\n"
+          + "Cash Paid: {cashPaid}\n"
+          + "Change: {change}");
+
     public String format(String recipe, int qty, PricingService.PricingResult pr, int taxPercent) {
-        StringBuilder receipt = new StringBuilder();
-        receipt.append("Order (").append(recipe).append(") x").append(qty).append("\n");
-        receipt.append("Subtotal: ").append(pr.subtotal()).append("\n");
-        if (pr.discount().asBigDecimal().signum() > 0) {
-            receipt.append("Discount: -").append(pr.discount()).append("\n");
-        }
-        receipt.append("Tax (").append(taxPercent).append("%): ").append(pr.tax()).append("\n");
-        receipt.append("Total: ").append(pr.total());
-        return receipt.toString();
+        return LAYOUT.render(recipe, qty, pr, taxPercent, null, null);
     }
     
     public String formatWithChange(String recipe, int qty, PricingService.PricingResult pr, int taxPercent, Money cashPaid, Money change) {
-        StringBuilder receipt = new StringBuilder();
-        receipt.append("Order (").append(recipe).append(") x").append(qty).append("\n");
-        receipt.append("Subtotal: ").append(pr.subtotal()).append("\n");
-        if (pr.discount().asBigDecimal().signum() > 0) {
-            receipt.append("Discount: -").append(pr.discount()).append("\n");
-        }
-        receipt.append("Tax (").append(taxPercent).append("%): ").append(pr.tax()).append("\n");
-        receipt.append("Total: ").append(pr.total()).append("\n");
-        receipt.append("Cash Paid: ").append(cashPaid).append("\n");
-        receipt.append("Change: ").append(change);
-        return receipt.toString();
+        return LAYOUT.render(recipe, qty, pr, taxPercent, cashPaid, change);
     }
 
     public void print(String receipt) {
         System.out.println(receipt);
     }
-}
\ No newline at end of file
+}
@@ -5,39 +5,38 @@ import com.cafepos.factory.ProductFactory;
 import com.cafepos.domain.LineItem;
 import com.cafepos.domain.Order;
 import com.cafepos.payment.PaymentStrategy;
+import com.cafepos.pricing.DiscountPolicy;
 import com.cafepos.pricing.FixedRateTaxPolicy; 
+import com.cafepos.pricing.NoDiscount;
+import com.cafepos.pricing.PricingService;
 public final class OrderService { 
-    private final ProductFactory factory = new ProductFactory(); 
+    private static final ProductFactory factory = new ProductFactory(); // shared so its recipe cache outlives one order
     private final Order order; 
-    public OrderService(Order order) { this.order = order; } 
+    private final DiscountPolicy discount;
+    public OrderService(Order order) { this(order, new NoDiscount()); } 
+    public OrderService(Order order, DiscountPolicy discount) {
+        if (discount == null) throw new IllegalArgumentException("discount policy required");
+        this.order = order;
+        this.discount = discount;
+    }
     public void addItem(String recipe, int qty) { 
         Product p = factory.create(recipe); 
         order.addItem(new LineItem(p, qty)); 
         System.out.println("[Service] Added " + p.name() + " x" + qty); 
     } 
     public void removeLastItem() { 
-        var items = new java.util.ArrayList<>(order.items()); 
-        if (!items.isEmpty()) { 
-            var last = items.get(items.size()-1); 
-            items.remove(items.size()-1); 
-            // replace items 
-            try { 
-                var field = Order.class.getDeclaredField("items"); 
-                field.setAccessible(true); 
-                field.set(order, items); 
-            } catch (Exception e) { 
-                throw new IllegalStateException("Could not remove item reflectively; adapt your Order API."); 
-            } 
+        if (order.removeLastItem().isPresent()) { 
             System.out.println("[Service] Removed last item"); 
         }
     }
+    /** The order priced with this service's discount and {@code percent} tax: what {@link #pay} charges. */
     public Money totalWithTax(int percent) {
-        return order.totalWithTax(new FixedRateTaxPolicy(percent));
+        return new PricingService(discount, new FixedRateTaxPolicy(percent)).price(order.items()).totals().total();
     }
     public void pay(PaymentStrategy strategy, int taxPercent) {
-        // Usually you'd call order.pay(strategy), here we display a payment using the computed total 
-        var total = order.totalWithTax(new FixedRateTaxPolicy(taxPercent));
-        strategy.pay(order);
+        // Charge exactly the priced total, discount included; strategies never price the order themselves
+        var total = totalWithTax(taxPercent);
+        order.pay(strategy, total);
         System.out.println("[Service] Payment processed for total " + total); 
     }
     public Order order() { return order; }
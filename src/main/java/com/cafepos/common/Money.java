@@ -2,69 +2,172 @@ package com.cafepos.common;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Non-negative euro amount held as a primitive count of cents.
+ * Arithmetic stays on {@code long} and fails fast on overflow; {@link BigDecimal}
+ * is only used at the edges ({@link #of(double)}, {@link #of(BigDecimal)}, {@link #asBigDecimal()}).
+ * Amounts from 0 up to {@code cafepos.money.cacheMaxCents} (default 5000, i.e. 50.00)
+ * are served from a shared table of canonical instances.
+ */
 public final class Money implements Comparable<Money> {
-    private final BigDecimal amount;
+    private static final int CACHE_MAX_CENTS = Integer.getInteger("cafepos.money.cacheMaxCents", 5000);
+    private static final Money[] CACHE = new Money[Math.min(Math.max(CACHE_MAX_CENTS, 0), 1 << 20) + 1];
+    private static final LongAdder CACHE_HITS = new LongAdder();
+    private static final LongAdder CACHE_MISSES = new LongAdder();
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) CACHE[i] = new Money(i);
+    }
+
+    private final long cents;
 
     public static Money of(double value) {
         if (value < 0) {
             throw new IllegalArgumentException("Money amount cannot be negative");
         }
-        return new Money(BigDecimal.valueOf(value));
+        // fast path for values that are already exact to the cent (2.50, 3.20, ...)
+        double scaled = value * 100;
+        long rounded = Math.round(scaled);
+        if (rounded / 100.0 == value && rounded != Long.MAX_VALUE) {
+            return valueOf(rounded);
+        }
+        return of(BigDecimal.valueOf(value));
     }
 
     public static Money of(BigDecimal value) {
         if (value == null || value.compareTo(BigDecimal.ZERO) < 0) {
             throw new IllegalArgumentException("Money amount cannot be null or negative");
         }
-        return new Money(value);
+        try {
+            return valueOf(value.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+        } catch (ArithmeticException e) {
+            throw new ArithmeticException("Money overflow: " + value);
+        }
+    }
+
+    public static Money ofCents(long cents) {
+        if (cents < 0) {
+            throw new IllegalArgumentException("Money amount cannot be negative");
+        }
+        return valueOf(cents);
     }
 
     public static Money zero() {
-        return new Money(BigDecimal.ZERO);
+        return CACHE[0];
     }
 
-    private Money(BigDecimal a) {
-        if (a == null) throw new IllegalArgumentException("amount required");
-        this.amount = a.setScale(2, RoundingMode.HALF_UP);
+    private static Money valueOf(long cents) {
+        if (cents < CACHE.length) {
+            CACHE_HITS.increment();
+            return CACHE[(int) cents];
+        }
+        CACHE_MISSES.increment();
+        return new Money(cents);
     }
 
-    public Money add(Money other) { 
+    /** Hit/miss counts of the shared instance table, for tuning {@code cafepos.money.cacheMaxCents}. */
+    public static CacheStats cacheStats() {
+        return new CacheStats(CACHE.length - 1, CACHE_HITS.sum(), CACHE_MISSES.sum());
+    }
+
+    public static void resetCacheStats() {
+        CACHE_HITS.reset();
+        CACHE_MISSES.reset();
+    }
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    public Money add(Money other) {
         if (other == null)
             throw new IllegalArgumentException("more money required");
-        return new Money(this.amount.add(other.amount));
+        return valueOf(Math.addExact(cents, other.cents));
     }
 
-    public Money multiply(int qty) { 
+    /** Difference of two amounts; the result may not go below zero. */
+    public Money subtract(Money other) {
+        if (other == null)
+            throw new IllegalArgumentException("more money required");
+        if (other.cents > cents)
+            throw new IllegalArgumentException("Money amount cannot be negative");
+        return valueOf(cents - other.cents);
+    }
+
+    public Money multiply(int qty) {
         if (qty < 0)
             throw new IllegalArgumentException("quantity must be positive");
-        return new Money(this.amount.multiply(BigDecimal.valueOf(qty))); 
+        return valueOf(Math.multiplyExact(cents, (long) qty));
+    }
+
+    /** {@code percent}% of this amount, rounded HALF_UP to the cent. */
+    public Money percent(int percent) {
+        return valueOf(percentOfCents(cents, percent));
+    }
+
+    /** Primitive form of {@link #percent(int)} for callers that stay on cents. */
+    public static long percentOfCents(long cents, int percent) {
+        if (percent < 0)
+            throw new IllegalArgumentException("percent must be positive");
+        if (cents < 0)
+            throw new IllegalArgumentException("Money amount cannot be negative");
+        return Math.addExact(Math.multiplyExact(cents, (long) percent), 50) / 100;
+    }
+
+    public long asCents() {
+        return cents;
     }
 
-    public BigDecimal asBigDecimal() { 
-        return amount; 
+    public boolean isZero() {
+        return cents == 0;
+    }
+
+    public BigDecimal asBigDecimal() {
+        return BigDecimal.valueOf(cents, 2);
     }
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
         if (!(obj instanceof Money))
             return false;
         Money other = (Money) obj;
-        return this.amount.equals(other.amount);
+        return this.cents == other.cents;
     }
 
     @Override
     public int hashCode() {
-        return amount.hashCode();
+        return Long.hashCode(cents);
     }
 
     @Override
     public int compareTo(Money other) {
-        return this.amount.compareTo(other.amount);
+        return Long.compare(this.cents, other.cents);
     }
-    
+
+    /** Renders as euros with two decimals, e.g. {@code 12.05}. */
     @Override
     public String toString() {
-        return String.format("%.2f", amount);
+        return appendCents(new StringBuilder(8), cents).toString();
+    }
+
+    /** Appends {@code cents} as euros with two decimals, without going through a formatter. */
+    public static StringBuilder appendCents(StringBuilder sb, long cents) {
+        if (cents < 0) {
+            sb.append('-');
+            cents = -cents;
+        }
+        int frac = (int) (cents % 100);
+        return sb.append(cents / 100).append('.').append((char) ('0' + frac / 10)).append((char) ('0' + frac % 10));
+    }
+
+    public static record CacheStats(int maxCachedCents, long hits, long misses) {
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
     }
-}
\ No newline at end of file
+}
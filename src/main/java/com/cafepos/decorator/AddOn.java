@@ -0,0 +1,34 @@
+package com.cafepos.decorator;
+
+import com.cafepos.catalog.Product;
+import com.cafepos.common.Money;
+
+/** Add-on defined by data (label and surcharge) rather than by its own decorator class. */
+public final class AddOn extends ProductDecorator {
+    private final String label;
+    private final Money surcharge;
+    private final boolean size;
+
+    public AddOn(Product base, String label, Money surcharge, boolean size) {
+        super(base);
+        if (label == null || label.isBlank()) throw new IllegalArgumentException("label required");
+        if (surcharge == null) throw new IllegalArgumentException("surcharge required");
+        this.label = label;
+        this.surcharge = surcharge;
+        this.size = size;
+    }
+
+    @Override
+    public String name() {
+        return size ? base.name() + " (" + label + ")" : base.name() + " + " + label;
+    }
+
+    @Override
+    public String addOnName() {
+        return label;
+    }
+
+    public Money price() {
+        return (base instanceof Priced p ? p.price() : base.basePrice()).add(surcharge);
+    }
+}
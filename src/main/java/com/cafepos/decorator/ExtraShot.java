@@ -2,10 +2,9 @@ package com.cafepos.decorator;
 
 import com.cafepos.catalog.Product;
 import com.cafepos.common.Money;
+import com.cafepos.factory.RecipeRegistry;
 
 public final class ExtraShot extends ProductDecorator {
-    private static final Money SURCHARGE = Money.of(0.80);
-
     public ExtraShot(Product base) {
         super(base);
     }
@@ -15,7 +14,12 @@ public final class ExtraShot extends ProductDecorator {
         return base.name() + " + Extra Shot";
     }
 
+    @Override
+    public String addOnName() {
+        return "Extra Shot";
+    }
+
     public Money price() {
-        return (base instanceof Priced p ? p.price() : base.basePrice()).add(SURCHARGE);
+        return (base instanceof Priced p ? p.price() : base.basePrice()).add(RecipeRegistry.defaults().addOnPrice("SHOT"));
     }
 }
\ No newline at end of file
@@ -0,0 +1,103 @@
+package com.cafepos.decorator;
+
+import com.cafepos.catalog.Product;
+import com.cafepos.common.Money;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A decorator chain collapsed into one immutable product: id, name, base price, final price,
+ * category and the ordered add-ons are computed once by {@link #of(Product)}, so every read is O(1).
+ * A flat product is equal to the decorator chain it came from, and to any other flat product or
+ * chain with the same id, final price and add-ons, whichever way round they are compared.
+ */
+public final class FlatProduct implements Product, Priced {
+    private final String id;
+    private final String name;
+    private final Money basePrice;
+    private final Money price;
+    private final String category;
+    private final List<String> addOns;
+
+    private FlatProduct(String id, String name, Money basePrice, Money price, String category, List<String> addOns) {
+        this.id = id;
+        this.category = category;
+        this.name = name;
+        this.basePrice = basePrice;
+        this.price = price;
+        this.addOns = addOns;
+    }
+
+    /** Flattens {@code p} if it is a decorator chain; anything else is already flat and returned as is. */
+    public static Product of(Product p) {
+        if (p == null) throw new IllegalArgumentException("product required");
+        if (!(p instanceof ProductDecorator)) return p;
+        Money price = ((Priced) p).price();
+        return new FlatProduct(p.id(), p.name(), p.basePrice(), price, p.category(), addOnsOf(p));
+    }
+
+    static List<String> addOnsOf(Product p) {
+        if (p instanceof FlatProduct f) return f.addOns;
+        List<String> addOns = new ArrayList<>();
+        Product cur = p;
+        while (cur instanceof ProductDecorator d) {
+            addOns.add(d.addOnName());
+            cur = d.base();
+        }
+        Collections.reverse(addOns); // innermost decorator was applied first
+        return List.copyOf(addOns);
+    }
+
+    /** Value equality shared with {@link ProductDecorator}: same id, final price and add-ons. */
+    static boolean sameProduct(Product a, Object o) {
+        if (a == o) return true;
+        if (!(o instanceof FlatProduct) && !(o instanceof ProductDecorator)) return false;
+        Product b = (Product) o;
+        return a.id().equals(b.id()) && ((Priced) a).price().equals(((Priced) b).price())
+                && addOnsOf(a).equals(addOnsOf(b));
+    }
+
+    static int productHash(Product p) {
+        return Objects.hash(p.id(), ((Priced) p).price(), addOnsOf(p));
+    }
+
+    @Override
+    public String id() {
+        return id;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public Money basePrice() {
+        return basePrice;
+    }
+
+    @Override
+    public String category() {
+        return category;
+    }
+
+    @Override
+    public Money price() {
+        return price;
+    }
+
+    /** Add-on labels in the order they were applied, e.g. [Extra Shot, Oat Milk, Large]. */
+    public List<String> addOns() {
+        return addOns;
+    }
+
+    @Override
+    public String toString() { return name + " (€" + price + ")"; }
+
+    @Override public boolean equals(Object o) { return sameProduct(this, o); }
+
+    @Override public int hashCode() { return productHash(this); }
+}
@@ -2,10 +2,9 @@ package com.cafepos.decorator;
 
 import com.cafepos.catalog.Product;
 import com.cafepos.common.Money;
+import com.cafepos.factory.RecipeRegistry;
 
 public final class OatMilk extends ProductDecorator { 
-    private static final Money SURCHARGE = Money.of(0.50); 
-    
     public OatMilk(Product base) {
         super(base);
     }
@@ -15,7 +14,12 @@ public final class OatMilk extends ProductDecorator {
         return base.name() + " + Oat Milk";
     }
     
+    @Override
+    public String addOnName() {
+        return "Oat Milk";
+    }
+
     public Money price() { 
-        return (base instanceof Priced p ? p.price() : base.basePrice()).add(SURCHARGE);
+        return (base instanceof Priced p ? p.price() : base.basePrice()).add(RecipeRegistry.defaults().addOnPrice("OAT"));
     }
 }
\ No newline at end of file
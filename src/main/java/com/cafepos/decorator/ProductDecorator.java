@@ -21,6 +21,29 @@ public abstract class ProductDecorator implements Product, Priced {
     public Money basePrice() {
         return base.basePrice();
     } // original price (not total)
+
+    @Override
+    public String category() {
+        return base.category();
+    }
+
+    public Product base() {
+        return base;
+    }
+
+    /** Label of the single add-on this decorator contributes, e.g. "Extra Shot". */
+    public abstract String addOnName();
+
+    /** Equal to another chain or {@link FlatProduct} with the same id, final price and add-ons. */
+    @Override
+    public final boolean equals(Object o) {
+        return FlatProduct.sameProduct(this, o);
+    }
+
+    @Override
+    public final int hashCode() {
+        return FlatProduct.productHash(this);
+    }
     
     // Concrete decorators will override name() and provide a finalPrice() helper if desired.
 }
\ No newline at end of file
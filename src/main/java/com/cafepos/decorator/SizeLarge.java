@@ -2,10 +2,9 @@ package com.cafepos.decorator;
 
 import com.cafepos.catalog.Product;
 import com.cafepos.common.Money;
+import com.cafepos.factory.RecipeRegistry;
 
 public final class SizeLarge extends ProductDecorator { 
-    private static final Money SURCHARGE = Money.of(0.70); 
-    
     public SizeLarge(Product base) {
         super(base);
     }
@@ -15,7 +14,12 @@ public final class SizeLarge extends ProductDecorator {
         return base.name() + " (Large)";
     }
     
+    @Override
+    public String addOnName() {
+        return "Large";
+    }
+
     public Money price() { 
-        return (base instanceof Priced p ? p.price() : base.basePrice()).add(SURCHARGE);
+        return (base instanceof Priced p ? p.price() : base.basePrice()).add(RecipeRegistry.defaults().addOnPrice("L"));
     }
 }
\ No newline at end of file
@@ -1,41 +1,114 @@
 package com.cafepos.domain;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.cafepos.common.Money;
+import com.cafepos.observers.EventKind;
 import com.cafepos.observers.OrderObserver;
 import com.cafepos.observers.OrderPublisher;
+import com.cafepos.observers.OrderUpdate;
+import com.cafepos.payment.PaymentRequest;
+import com.cafepos.payment.PaymentResult;
 import com.cafepos.payment.PaymentStrategy;
 import com.cafepos.pricing.TaxPolicy;
 import com.cafepos.pricing.FixedRateTaxPolicy;
 
+/**
+ * Safe to share between tills and kitchen screens: readers take the current
+ * snapshot of its lines without locking, writers are serialized on a private lock.
+ */
 public final class Order implements OrderPublisher {
-    private final long id;
-    private final List<LineItem> items = new ArrayList<>();
-    private final List<OrderObserver> observers = new ArrayList<>();
+    private static final OrderObserver[][] NO_OBSERVERS = new OrderObserver[EventKind.values().length][0];
 
+    private final long id;
+    private final long createdAtMillis;
+    private volatile OrderStatus status = OrderStatus.OPEN;
+    private volatile String paymentType;
+    private volatile RuntimeException markPaidFailure;
+    private final Object writeLock = new Object();
+    private volatile Lines lines = Lines.EMPTY;
+    private final CopyOnWriteArrayList<OrderObserver> observers = new CopyOnWriteArrayList<>();
+    /** Observers by {@link EventKind} ordinal, rebuilt on (un)registration. */
+    private volatile OrderObserver[][] byKind = NO_OBSERVERS;
 
     public Order(long id) {
+        this(id, System.currentTimeMillis());
+    }
+
+    public Order(long id, long createdAtMillis) {
         this.id = id;
+        this.createdAtMillis = createdAtMillis;
+    }
+
+    /** Rebuilds a stored order's header without notifying anyone; lines are added afterwards. */
+    public static Order restore(long id, long createdAtMillis, OrderStatus status, String paymentType) {
+        Order o = new Order(id, createdAtMillis);
+        o.status = status == null ? OrderStatus.OPEN : status;
+        o.paymentType = paymentType;
+        return o;
     }
 
     public long id() {
         return id;
     }
 
+    public long createdAtMillis() {
+        return createdAtMillis;
+    }
+
+    public OrderStatus status() {
+        return status;
+    }
+
+    /** {@link PaymentStrategy#type()} of the strategy this order was paid with, if any. */
+    public Optional<String> paymentType() {
+        return Optional.ofNullable(paymentType);
+    }
+
+    /** Read-only, non-copying view of the lines at the time of the call. */
     public List<LineItem> items() {
-        return new ArrayList<>(items);
+        return lines;
     }
 
     public void addItem(LineItem li) { 
         if (li == null || li.quantity() <= 0)
             throw new IllegalArgumentException("line item required");
-        items.add(li);
+        long lineCents = li.lineTotal().asCents();
+        synchronized (writeLock) {
+            Lines cur = lines;
+            LineItem[] slots = cur.slots;
+            if (cur.size == slots.length) {
+                slots = Arrays.copyOf(slots, Math.max(4, slots.length * 2));
+            }
+            // slot cur.size is past the end of every published snapshot sharing this array
+            slots[cur.size] = li;
+            lines = new Lines(slots, cur.size + 1, Math.addExact(cur.subtotalCents, lineCents));
+        }
+    }
+
+    /** Removes the most recently added line (used by undo); empty if the order has no lines. */
+    public Optional<LineItem> removeLastItem() {
+        synchronized (writeLock) {
+            Lines cur = lines;
+            if (cur.size == 0) return Optional.empty();
+            LineItem last = cur.slots[cur.size - 1];
+            // older snapshots still see `last`, so later appends must go to a fresh array
+            LineItem[] slots = Arrays.copyOf(cur.slots, cur.slots.length);
+            slots[cur.size - 1] = null;
+            lines = new Lines(slots, cur.size - 1, cur.subtotalCents - last.lineTotal().asCents());
+            return Optional.of(last);
+        }
     }
 
     public Money subtotal() {
-        return items.stream().map(LineItem::lineTotal).reduce(Money.zero(), Money::add);
+        return Money.ofCents(lines.subtotalCents);
     }
 
     public Money tax(TaxPolicy policy) {
@@ -43,42 +116,146 @@ public final class Order implements OrderPublisher {
     }
 
     public Money totalWithTax(TaxPolicy policy) {
-        return subtotal().add(tax(policy));
+        Money subtotal = subtotal();
+        return subtotal.add(policy.taxOn(subtotal));
+    }
+
+    /**
+     * Pays {@code amount}, the total already worked out by the pricing step, then marks the
+     * order paid with that amount.
+     */
+    public void pay(PaymentStrategy strategy, Money amount) {
+        if (strategy == null)
+            throw new IllegalArgumentException("strategy required");
+        strategy.pay(new PaymentRequest(this, amount));
+        paymentType = strategy.type();
+        markPaid(amount);
+    }
+
+    /**
+     * Pays {@code amount} without blocking. Once approved, the payment type is recorded and the
+     * order is marked paid with the approved amount, on the thread that completed the payment.
+     * The future always completes with the processor's result: if marking the order paid throws
+     * (an observer failing, say) the charge still went through, so the approval is returned and
+     * the failure is kept in {@link #markPaidFailure()}.
+     */
+    public CompletableFuture<PaymentResult> payAsync(PaymentStrategy strategy, Money amount) {
+        if (strategy == null)
+            throw new IllegalArgumentException("strategy required");
+        return strategy.payAsync(new PaymentRequest(this, amount)).thenApply(result -> {
+            if (result.isApproved()) {
+                paymentType = strategy.type();
+                try {
+                    markPaid(result.amount());
+                    markPaidFailure = null;
+                } catch (RuntimeException e) {
+                    markPaidFailure = e;
+                }
+            }
+            return result;
+        });
     }
 
-    public void pay(PaymentStrategy strategy) { 
-    if (strategy == null) 
-        throw new IllegalArgumentException("strategy required"); 
-    strategy.pay(this);
+    /** Why marking the order paid after its last approved async payment failed, or null if it did not. */
+    public RuntimeException markPaidFailure() {
+        return markPaidFailure;
     }
 
     @Override
     public void register(OrderObserver o) {
-        if (o != null && !observers.contains(o)) {
-            observers.add(o);
+        if (o != null && observers.addIfAbsent(o)) {
+            rebuildDispatch();
         }
     }
 
     @Override
     public void unregister(OrderObserver o) {
-        observers.remove(o);
+        if (observers.remove(o)) {
+            rebuildDispatch();
+        }
     }
 
+    private synchronized void rebuildDispatch() {
+        EventKind[] kinds = EventKind.values();
+        OrderObserver[][] next = new OrderObserver[kinds.length][];
+        for (EventKind kind : kinds) {
+            next[kind.ordinal()] = observers.stream().filter(o -> kind.in(o.subscriptions())).toArray(OrderObserver[]::new);
+        }
+        byKind = next;
+    }
+
+    /**
+     * Legacy string form: known kinds are dispatched as typed events, anything else goes to
+     * every observer's {@link OrderObserver#updated}.
+     */
     @Override
     public void notifyObservers(Order order, String eventType) {
+        OrderUpdate event = OrderUpdate.fromLegacy(order, eventType);
+        if (event != null) {
+            publish(event);
+            return;
+        }
         for (OrderObserver observer : observers) {
             observer.updated(order, eventType);
         }
     }
+
+    /** Delivers {@code event} to the observers subscribed to its kind. */
+    public void publish(OrderUpdate event) {
+        for (OrderObserver observer : byKind[event.kind().ordinal()]) {
+            observer.onEvent(event);
+        }
+    }
+
     public void markReady() {
-        notifyObservers(this, "ready");
+        status = OrderStatus.READY;
+        publish(new OrderUpdate.Ready(this));
     }
 
+    /** Announces the most recently added line. */
     public void markItemAdded() {
-        notifyObservers(this, "itemAdded");
+        Lines cur = lines;
+        publish(new OrderUpdate.ItemAdded(this, cur.size == 0 ? null : cur.slots[cur.size - 1]));
     }
 
+    /** Marks the order paid without saying how much was charged; the event's amount is null. */
     public void markPaid() {
-        notifyObservers(this, "paid");
+        status = OrderStatus.PAID;
+        publish(new OrderUpdate.Paid(this, null));
+    }
+
+    /** Marks the order paid and tells observers {@code amount} was charged. */
+    public void markPaid(Money amount) {
+        if (amount == null)
+            throw new IllegalArgumentException("amount required");
+        status = OrderStatus.PAID;
+        publish(new OrderUpdate.Paid(this, amount));
+    }
+
+    /**
+     * Immutable prefix of an append-only slot array. Appends reuse the array and only
+     * write past {@code size}; removals copy it, so a published snapshot never changes.
+     */
+    private static final class Lines extends AbstractList<LineItem> implements RandomAccess {
+        static final Lines EMPTY = new Lines(new LineItem[0], 0, 0);
+
+        final LineItem[] slots;
+        final int size;
+        final long subtotalCents;
+
+        Lines(LineItem[] slots, int size, long subtotalCents) {
+            this.slots = slots;
+            this.size = size;
+            this.subtotalCents = subtotalCents;
+        }
+
+        @Override public LineItem get(int index) {
+            Objects.checkIndex(index, size);
+            return slots[index];
+        }
+
+        @Override public int size() {
+            return size;
+        }
     }
-}
\ No newline at end of file
+}
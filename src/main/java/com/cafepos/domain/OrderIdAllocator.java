@@ -0,0 +1,5 @@
+package com.cafepos.domain;
+
+public interface OrderIdAllocator {
+    long next();
+}
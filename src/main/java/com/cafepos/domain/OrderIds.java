@@ -4,6 +4,13 @@ import java.util.concurrent.atomic.AtomicLong;
 
 public final class OrderIds {
     private static final AtomicLong SEQ = new AtomicLong(1000);
+    private static volatile OrderIdAllocator allocator = SEQ::incrementAndGet;
     private OrderIds() {}
-    public static long next() { return SEQ.incrementAndGet(); }
-}
\ No newline at end of file
+    public static long next() { return allocator.next(); }
+
+    /** Replaces the process-wide allocator, e.g. with a persistent one at startup. */
+    public static void use(OrderIdAllocator a) {
+        if (a == null) throw new IllegalArgumentException("allocator required");
+        allocator = a;
+    }
+}
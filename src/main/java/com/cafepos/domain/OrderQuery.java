@@ -0,0 +1,33 @@
+package com.cafepos.domain;
+
+/**
+ * Filter for indexed order lookups. Every criterion is optional ({@code null} or an open range
+ * matches everything); set criteria are combined with AND. Ranges are half-open: {@code [from, to)}.
+ */
+public record OrderQuery(OrderStatus status, String productId, String paymentType,
+                         long createdFrom, long createdTo, long idFrom, long idTo) {
+
+    public static OrderQuery all() {
+        return new OrderQuery(null, null, null, Long.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    public OrderQuery withStatus(OrderStatus s) {
+        return new OrderQuery(s, productId, paymentType, createdFrom, createdTo, idFrom, idTo);
+    }
+
+    public OrderQuery withProduct(String id) {
+        return new OrderQuery(status, id, paymentType, createdFrom, createdTo, idFrom, idTo);
+    }
+
+    public OrderQuery withPaymentType(String type) {
+        return new OrderQuery(status, productId, type, createdFrom, createdTo, idFrom, idTo);
+    }
+
+    public OrderQuery createdBetween(long fromMillis, long toMillis) {
+        return new OrderQuery(status, productId, paymentType, fromMillis, toMillis, idFrom, idTo);
+    }
+
+    public OrderQuery idBetween(long from, long to) {
+        return new OrderQuery(status, productId, paymentType, createdFrom, createdTo, from, to);
+    }
+}
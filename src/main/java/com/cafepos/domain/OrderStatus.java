@@ -0,0 +1,5 @@
+package com.cafepos.domain;
+
+public enum OrderStatus {
+    OPEN, PAID, READY
+}
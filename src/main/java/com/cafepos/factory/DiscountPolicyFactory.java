@@ -3,6 +3,7 @@ package com.cafepos.factory;
 import com.cafepos.common.Money;
 import com.cafepos.pricing.*;
 
+/** Maps discount codes to policies. Unknown codes are rejected rather than priced at no discount. */
 public final class DiscountPolicyFactory {
     public static DiscountPolicy create(String discountCode) {
         if (discountCode == null) return new NoDiscount();
@@ -10,7 +11,7 @@ public final class DiscountPolicyFactory {
             case "LOYAL5" -> new LoyaltyPercentDiscount(5);
             case "COUPON1" -> new FixedCouponDiscount(Money.of(1.00));
             case "NONE" -> new NoDiscount();
-            default -> new NoDiscount();
+            default -> throw new IllegalArgumentException("Unknown discount code: " + discountCode);
         };
     }
 }
\ No newline at end of file
@@ -1,32 +1,240 @@
 package com.cafepos.factory;
 
-import com.cafepos.catalog.*;
-import com.cafepos.common.Money;
-import com.cafepos.decorator.*;
-
-public final class ProductFactory { 
-    public Product create(String recipe) { 
-        if (recipe == null || recipe.isBlank()) throw new IllegalArgumentException("recipe required"); 
-    String[] raw = recipe.split("\\+"); // literal '+' 
-    String[] parts = java.util.Arrays.stream(raw) 
-    .map(String::trim) 
-    .map(String::toUpperCase) 
-    .toArray(String[]::new); 
-    Product p = switch (parts[0]) { 
-        case "ESP" -> new SimpleProduct("P-ESP", "Espresso", Money.of(2.50)); 
-        case "LAT" -> new SimpleProduct("P-LAT", "Latte", Money.of(3.20)); 
-        case "CAP" -> new SimpleProduct("P-CAP", "Cappuccino", Money.of(3.00)); 
-        default -> throw new IllegalArgumentException("Unknown base: " + parts[0]); 
-    }; 
-    for (int i = 1; i < parts.length; i++) { 
-        p = switch (parts[i]) { 
-            case "SHOT" -> new ExtraShot(p);
-            case "OAT"  -> new OatMilk(p);
-            case "SYP"  -> new Syrup(p);
-            case "L"    -> new SizeLarge(p);
-            default -> throw new IllegalArgumentException("Unknown addon: " + parts[i]); 
+import com.cafepos.catalog.Product;
+import com.cafepos.decorator.FlatProduct;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * Builds products from recipes such as {@code "ESP+SHOT+OAT+L"} (case and spaces around
+ * {@code +} are ignored) using the bases and add-ons of a {@link RecipeRegistry}. Products are
+ * immutable, so each distinct recipe is built once, flattened into a {@link FlatProduct}, and
+ * served from a bounded LRU cache keyed by both the recipe as given and its normalized form.
+ *
+ * A factory created from a registry file checks the file at most once a second and swaps in the
+ * new registry (dropping cached products) when its modification time, size or content hash
+ * changes, so add-ons can be edited without restarting the till. The hash catches a save that
+ * lands in the same timestamp tick as the previous one. A file that cannot be read or parsed
+ * (half saved, say) is skipped until it changes again: the current registry stays in use, orders
+ * are unaffected, and the problem is counted in {@link #reloadFailures()} and kept in
+ * {@link #lastReloadFailure()}.
+ */
+public final class ProductFactory {
+    public static final int DEFAULT_CACHE_SIZE = 512;
+    private static final long RELOAD_CHECK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int maxEntries;
+    private final LinkedHashMap<String, Product> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final Path registryFile;
+    private volatile RecipeRegistry registry;
+    private Stamp registryStamp; // guarded by this
+    private volatile long nextCheckNanos;
+    private volatile RuntimeException lastReloadFailure;
+    private final LongAdder reloadFailures = new LongAdder();
+
+    public ProductFactory() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    public ProductFactory(int maxEntries) {
+        this(RecipeRegistry.defaults(), null, maxEntries);
+    }
+
+    public ProductFactory(RecipeRegistry registry) {
+        this(registry, null, DEFAULT_CACHE_SIZE);
+    }
+
+    /** Reads bases and add-ons from {@code registryFile} and picks up later edits to it. */
+    public ProductFactory(Path registryFile) {
+        this(registryFile, read(registryFile));
+    }
+
+    private ProductFactory(Path registryFile, Contents contents) {
+        this(parse(contents.bytes()), registryFile, DEFAULT_CACHE_SIZE);
+        this.registryStamp = contents.stamp();
+    }
+
+    private ProductFactory(RecipeRegistry registry, Path registryFile, int maxEntries) {
+        if (registry == null) throw new IllegalArgumentException("registry required");
+        if (maxEntries <= 0) throw new IllegalArgumentException("cache size must be > 0");
+        this.registry = registry;
+        this.registryFile = registryFile;
+        this.maxEntries = maxEntries;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<String, Product> eldest) {
+                return size() > ProductFactory.this.maxEntries;
+            }
         };
+        this.nextCheckNanos = System.nanoTime() + RELOAD_CHECK_NANOS;
+    }
+
+    public Product create(String recipe) {
+        if (recipe == null || recipe.isBlank()) throw new IllegalArgumentException("recipe required");
+        if (registryFile != null && System.nanoTime() - nextCheckNanos >= 0) reloadIfChanged();
+        Product p = cached(recipe);
+        if (p != null) {
+            hits.increment();
+            return p;
+        }
+        String key = normalize(recipe);
+        p = cached(key);
+        RecipeRegistry reg = registry;
+        if (p == null) {
+            misses.increment();
+            p = FlatProduct.of(reg.build(reg.compile(key)));
+        } else {
+            hits.increment();
+        }
+        synchronized (cache) {
+            if (reg == registry) { // a reload in between would make p stale
+                cache.put(key, p);
+                if (!key.equals(recipe)) cache.put(recipe, p);
+            }
+        }
+        return p;
     }
-    return p;
+
+    /** The registry recipes are currently built from. */
+    public RecipeRegistry registry() {
+        return registry;
+    }
+
+    /** Swaps in {@code next} and drops every product built from the previous registry. */
+    public void use(RecipeRegistry next) {
+        if (next == null) throw new IllegalArgumentException("registry required");
+        synchronized (cache) {
+            registry = next;
+            cache.clear();
+        }
+    }
+
+    /**
+     * Re-reads the registry file now if it changed since it was last loaded. Returns true when a
+     * new registry was installed. A file that cannot be read or parsed leaves the current
+     * registry in use, is recorded in {@link #lastReloadFailure()}, and is not retried until its
+     * modification time, size or content changes again.
+     */
+    public synchronized boolean reloadIfChanged() {
+        if (registryFile == null) return false;
+        nextCheckNanos = System.nanoTime() + RELOAD_CHECK_NANOS;
+        Contents contents;
+        try {
+            contents = read(registryFile);
+        } catch (UncheckedIOException e) {
+            reloadFailed(e); // e.g. replaced mid-save; look again on the next check
+            return false;
+        }
+        if (contents.stamp().equals(registryStamp)) return false;
+        registryStamp = contents.stamp();
+        RecipeRegistry next;
+        try {
+            next = parse(contents.bytes());
+        } catch (RuntimeException e) {
+            reloadFailed(e);
+            return false;
+        }
+        use(next);
+        lastReloadFailure = null;
+        return true;
+    }
+
+    /** Why the last reload attempt failed, or null if the registry file last loaded cleanly. */
+    public RuntimeException lastReloadFailure() {
+        return lastReloadFailure;
+    }
+
+    /** Reload attempts that failed to read or parse the registry file. */
+    public long reloadFailures() {
+        return reloadFailures.sum();
+    }
+
+    private void reloadFailed(RuntimeException e) {
+        lastReloadFailure = e;
+        reloadFailures.increment();
+    }
+
+    /** The file's bytes and the stamp reloads compare; the time is read first, so a later edit still shows. */
+    private static Contents read(Path file) {
+        try {
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            byte[] bytes = Files.readAllBytes(file);
+            var crc = new CRC32();
+            crc.update(bytes);
+            return new Contents(bytes, new Stamp(modified, bytes.length, crc.getValue()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read registry " + file, e);
+        }
+    }
+
+    private static RecipeRegistry parse(byte[] bytes) {
+        var props = new Properties();
+        try {
+            props.load(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // not thrown for an in-memory stream
+        }
+        return RecipeRegistry.of(props);
+    }
+
+    private record Stamp(long modified, long size, long crc) {}
+
+    private record Contents(byte[] bytes, Stamp stamp) {}
+
+    public CacheStats cacheStats() {
+        int size;
+        synchronized (cache) {
+            size = cache.size();
+        }
+        return new CacheStats(size, hits.sum(), misses.sum());
+    }
+
+    public static record CacheStats(int entries, long hits, long misses) {
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+
+    private Product cached(String key) {
+        synchronized (cache) {
+            return cache.get(key);
+        }
+    }
+
+    /** Upper-cases each token and drops whitespace around it, in one pass over the recipe. */
+    static String normalize(String recipe) {
+        StringBuilder sb = new StringBuilder(recipe.length());
+        int tokenStart = 0;
+        int lastNonSpace = -1; // in sb, so trailing spaces of a token can be cut
+        for (int i = 0; i < recipe.length(); i++) {
+            char c = recipe.charAt(i);
+            if (c == '+') {
+                sb.setLength(lastNonSpace + 1);
+                sb.append('+');
+                tokenStart = sb.length();
+                lastNonSpace = tokenStart - 1;
+            } else if (Character.isWhitespace(c)) {
+                if (sb.length() > tokenStart) sb.append(c);
+            } else {
+                sb.append(Character.toUpperCase(c));
+                lastNonSpace = sb.length() - 1;
+            }
+        }
+        sb.setLength(lastNonSpace + 1);
+        return sb.toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,242 @@
+package com.cafepos.factory;
+
+import com.cafepos.catalog.Product;
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.common.Money;
+import com.cafepos.decorator.AddOn;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Bases and add-ons that recipes may use, read from a properties file rather than hard-coded.
+ *
+ * <pre>
+ * base.ESP  = P-ESP|Espresso|2.50|DRINK
+ * addon.OAT = Oat Milk|0.50
+ * addon.L   = Large|0.70|size
+ * </pre>
+ *
+ * Every code gets a small integer (its index in the sorted code list), and codes are looked up
+ * in an open-addressed table straight from the recipe text, without cutting out substrings.
+ * {@link #compile} turns a recipe into {@code [base, addOn, addOn...]} and {@link #build} turns
+ * that back into a product. A registry is immutable; reloading means loading a new one.
+ */
+public final class RecipeRegistry {
+    private static final String DEFAULTS = "recipes.properties";
+    private static volatile RecipeRegistry shipped; // immutable, so one copy is shared
+
+    private final String[] baseIds;
+    private final String[] baseNames;
+    private final long[] baseCents;
+    private final String[] baseCategories;
+    private final String[] addOnLabels;
+    private final long[] addOnCents;
+    private final boolean[] addOnSize;
+    private final CodeTable bases;
+    private final CodeTable addOns;
+
+    private RecipeRegistry(Properties props) {
+        var baseCodes = new TreeMap<String, String>(); // code -> property key
+        var addOnCodes = new TreeMap<String, String>();
+        for (String key : props.stringPropertyNames()) {
+            var codes = key.startsWith("base.") ? baseCodes : key.startsWith("addon.") ? addOnCodes : null;
+            if (codes == null) throw new IllegalArgumentException("Unknown registry entry: " + key);
+            if (codes.put(code(key), key) != null) throw new IllegalArgumentException("Duplicate registry code: " + key);
+        }
+        if (baseCodes.isEmpty()) throw new IllegalArgumentException("registry has no bases");
+
+        int nb = baseCodes.size();
+        baseIds = new String[nb];
+        baseNames = new String[nb];
+        baseCents = new long[nb];
+        baseCategories = new String[nb];
+        int i = 0;
+        for (String key : baseCodes.values()) {
+            String[] f = fields(key, props, 3, 4);
+            baseIds[i] = f[0];
+            baseNames[i] = f[1];
+            baseCents[i] = cents(key, f[2]);
+            baseCategories[i] = f.length == 4 ? f[3].toUpperCase() : Product.GENERAL;
+            i++;
+        }
+
+        int na = addOnCodes.size();
+        addOnLabels = new String[na];
+        addOnCents = new long[na];
+        addOnSize = new boolean[na];
+        i = 0;
+        for (String key : addOnCodes.values()) {
+            String[] f = fields(key, props, 2, 3);
+            addOnLabels[i] = f[0];
+            addOnCents[i] = cents(key, f[1]);
+            if (f.length == 3 && !f[2].equals("size")) {
+                throw new IllegalArgumentException("Bad registry entry " + key + ": unknown flag " + f[2]);
+            }
+            addOnSize[i] = f.length == 3;
+            i++;
+        }
+        bases = new CodeTable(new ArrayList<>(baseCodes.keySet()));
+        addOns = new CodeTable(new ArrayList<>(addOnCodes.keySet()));
+    }
+
+    /** The registry shipped with the till. */
+    public static RecipeRegistry defaults() {
+        RecipeRegistry r = shipped;
+        if (r == null) shipped = r = loadDefaults();
+        return r;
+    }
+
+    private static RecipeRegistry loadDefaults() {
+        try (InputStream in = RecipeRegistry.class.getResourceAsStream(DEFAULTS)) {
+            if (in == null) throw new IllegalStateException("missing " + DEFAULTS);
+            var props = new Properties();
+            props.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+            return new RecipeRegistry(props);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + DEFAULTS, e);
+        }
+    }
+
+    public static RecipeRegistry load(Path file) {
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            var props = new Properties();
+            props.load(in);
+            return new RecipeRegistry(props);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read registry " + file, e);
+        }
+    }
+
+    public static RecipeRegistry of(Properties props) {
+        return new RecipeRegistry(props);
+    }
+
+    /**
+     * Compiles {@code recipe} to {@code [baseCode, addOnCode...]}. Codes are matched ignoring
+     * case and whitespace around {@code +}.
+     */
+    public int[] compile(String recipe) {
+        int tokens = 1;
+        for (int i = 0; i < recipe.length(); i++) if (recipe.charAt(i) == '+') tokens++;
+        int[] codes = new int[tokens];
+        int start = 0;
+        for (int t = 0; t < tokens; t++) {
+            int end = recipe.indexOf('+', start);
+            if (end < 0) end = recipe.length();
+            int s = start, e = end;
+            while (s < e && Character.isWhitespace(recipe.charAt(s))) s++;
+            while (e > s && Character.isWhitespace(recipe.charAt(e - 1))) e--;
+            if (t == 0) {
+                codes[t] = bases.find(recipe, s, e);
+                if (codes[t] < 0) throw new IllegalArgumentException("Unknown base: " + upper(recipe, s, e));
+            } else {
+                codes[t] = addOns.find(recipe, s, e);
+                if (codes[t] < 0) throw new IllegalArgumentException("Unknown addon: " + upper(recipe, s, e));
+            }
+            start = end + 1;
+        }
+        return codes;
+    }
+
+    /** Builds the product for a recipe produced by {@link #compile} on this registry. */
+    public Product build(int[] codes) {
+        int b = codes[0];
+        Product p = new SimpleProduct(baseIds[b], baseNames[b], Money.ofCents(baseCents[b]), baseCategories[b]);
+        for (int i = 1; i < codes.length; i++) {
+            int a = codes[i];
+            p = new AddOn(p, addOnLabels[a], Money.ofCents(addOnCents[a]), addOnSize[a]);
+        }
+        return p;
+    }
+
+    /** Surcharge of add-on {@code code} (matched ignoring case). */
+    public Money addOnPrice(String code) {
+        int a = code == null ? -1 : addOns.find(code, 0, code.length());
+        if (a < 0) throw new IllegalArgumentException("Unknown addon: " + code);
+        return Money.ofCents(addOnCents[a]);
+    }
+
+    public int baseCount() {
+        return baseIds.length;
+    }
+
+    public int addOnCount() {
+        return addOnLabels.length;
+    }
+
+    private static String code(String key) {
+        String code = key.substring(key.indexOf('.') + 1).trim().toUpperCase();
+        if (code.isEmpty() || code.indexOf('+') >= 0) throw new IllegalArgumentException("Bad registry code: " + key);
+        return code;
+    }
+
+    private static String[] fields(String key, Properties props, int min, int max) {
+        String[] f = props.getProperty(key).split("\\|", -1);
+        if (f.length < min || f.length > max) throw new IllegalArgumentException("Bad registry entry " + key);
+        for (int i = 0; i < f.length; i++) {
+            f[i] = f[i].trim();
+            if (f[i].isEmpty()) throw new IllegalArgumentException("Bad registry entry " + key);
+        }
+        return f;
+    }
+
+    private static long cents(String key, String price) {
+        try {
+            return Money.of(new BigDecimal(price)).asCents();
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad price for " + key + ": " + price);
+        }
+    }
+
+    private static String upper(String s, int start, int end) {
+        return s.substring(start, end).toUpperCase();
+    }
+
+    /** Open-addressed code → index table, probed with case-insensitive region compares. */
+    private static final class CodeTable {
+        private final String[] keys;
+        private final int[] values;
+        private final int mask;
+
+        CodeTable(List<String> codes) {
+            int cap = Integer.highestOneBit(Math.max(4, codes.size() * 4) - 1) << 1;
+            keys = new String[cap];
+            values = new int[cap];
+            mask = cap - 1;
+            for (int v = 0; v < codes.size(); v++) {
+                String code = codes.get(v);
+                int i = hash(code, 0, code.length()) & mask;
+                while (keys[i] != null) i = (i + 1) & mask;
+                keys[i] = code;
+                values[i] = v;
+            }
+        }
+
+        int find(String s, int start, int end) {
+            int len = end - start;
+            int i = hash(s, start, end) & mask;
+            for (String k; (k = keys[i]) != null; i = (i + 1) & mask) {
+                if (k.length() == len && s.regionMatches(true, start, k, 0, len)) return values[i];
+            }
+            return -1;
+        }
+
+        private static int hash(String s, int start, int end) {
+            int h = 0;
+            for (int i = start; i < end; i++) h = 31 * h + Character.toUpperCase(s.charAt(i));
+            return h ^ (h >>> 16);
+        }
+    }
+}
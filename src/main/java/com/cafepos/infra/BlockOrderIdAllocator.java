@@ -0,0 +1,131 @@
+package com.cafepos.infra;
+
+import com.cafepos.domain.OrderIdAllocator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Order id allocator that hands each thread a private block of ids, so {@link #next()} is usually
+ * a thread-local increment with no shared state. Blocks are cut from a shared pool of reserved ids,
+ * which is refilled {@value #BLOCKS_PER_RESERVE} blocks at a time by advancing a high-water mark
+ * that is forced to disk before any of it is used, so a restart resumes above every id that may
+ * have been handed out (unused ids are skipped, never reused).
+ *
+ * A thread's first block is small and each later one doubles, up to {@code blockSize}. Threads
+ * that come and go (a growing and shrinking pool, say) therefore take the lock briefly, rarely
+ * wait on the disk, and leave at most a small block unused when they end.
+ *
+ * A high-water-mark file shorter than 8 bytes (a torn first write) is refused rather than read
+ * as empty, since starting over would hand out ids again.
+ *
+ * The node id (one per till, 0..32767) sits above a 48-bit sequence, so tills never collide;
+ * node 0 yields plain sequential ids like {@link com.cafepos.domain.OrderIds}' default.
+ */
+public final class BlockOrderIdAllocator implements OrderIdAllocator, AutoCloseable {
+    public static final int SEQUENCE_BITS = 48;
+    public static final int MAX_NODE = (1 << (Long.SIZE - 1 - SEQUENCE_BITS)) - 1;
+    public static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+    private static final long FIRST_SEQUENCE = 1001;
+    static final int BLOCKS_PER_RESERVE = 16;
+    private static final int FIRST_BLOCK = 16;
+
+    private final long nodePrefix;
+    private final int blockSize;
+    private final FileChannel hwmFile;
+    private final ByteBuffer hwmBuffer = ByteBuffer.allocate(Long.BYTES);
+    private final ThreadLocal<Block> blocks = ThreadLocal.withInitial(Block::new);
+    private long reserved;      // first id not yet handed to a thread; guarded by this
+    private long highWaterMark; // first id not yet reserved on disk; guarded by this
+
+    public BlockOrderIdAllocator(Path hwmFile, int nodeId, int blockSize) {
+        this(hwmFile, nodeId, blockSize, 0);
+    }
+
+    /**
+     * Like {@link #BlockOrderIdAllocator(Path, int, int)}, but ids also start above
+     * {@code usedSequence}, e.g. the highest sequence already in an order log when this allocator
+     * is first installed over it.
+     */
+    public BlockOrderIdAllocator(Path hwmFile, int nodeId, int blockSize, long usedSequence) {
+        if (usedSequence < 0 || usedSequence >= MAX_SEQUENCE)
+            throw new IllegalArgumentException("usedSequence must be in 0.." + (MAX_SEQUENCE - 1));
+        if (nodeId < 0 || nodeId > MAX_NODE)
+            throw new IllegalArgumentException("nodeId must be in 0.." + MAX_NODE);
+        if (blockSize <= 0) throw new IllegalArgumentException("blockSize must be > 0");
+        this.nodePrefix = (long) nodeId << SEQUENCE_BITS;
+        this.blockSize = blockSize;
+        try {
+            if (hwmFile.getParent() != null) Files.createDirectories(hwmFile.getParent());
+            this.hwmFile = FileChannel.open(hwmFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.DSYNC);
+            long size = this.hwmFile.size();
+            if (size > 0 && size < Long.BYTES) {
+                this.hwmFile.close();
+                throw new IllegalStateException("Id high-water mark " + hwmFile + " is truncated (" + size
+                        + " bytes); refusing to start over and reuse ids");
+            }
+            this.highWaterMark = Math.max(size == 0 ? FIRST_SEQUENCE : readHighWaterMark(), usedSequence + 1);
+            this.reserved = highWaterMark;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open id high-water mark " + hwmFile, e);
+        }
+    }
+
+    @Override public long next() {
+        Block b = blocks.get();
+        if (b.next == b.end) refill(b);
+        return nodePrefix | b.next++;
+    }
+
+    @Override public synchronized void close() {
+        try {
+            hwmFile.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Gives {@code b} the next block from the pool, reserving more ids on disk when it runs dry. */
+    private synchronized void refill(Block b) {
+        b.size = b.size == 0 ? Math.min(FIRST_BLOCK, blockSize) : Math.min(2 * b.size, blockSize);
+        long size = Math.min(b.size, MAX_SEQUENCE + 1 - reserved);
+        if (size <= 0) throw new IllegalStateException("order id space exhausted");
+        if (reserved + size > highWaterMark) {
+            long end = Math.min(reserved + (long) blockSize * BLOCKS_PER_RESERVE, MAX_SEQUENCE + 1);
+            writeHighWaterMark(end);
+            highWaterMark = end;
+        }
+        b.next = reserved;
+        b.end = reserved + size;
+        reserved = b.end;
+    }
+
+    private long readHighWaterMark() throws IOException {
+        hwmBuffer.clear();
+        while (hwmBuffer.hasRemaining() && hwmFile.read(hwmBuffer, hwmBuffer.position()) > 0) { }
+        return hwmBuffer.flip().getLong();
+    }
+
+    private void writeHighWaterMark(long value) {
+        hwmBuffer.clear();
+        hwmBuffer.putLong(value).flip();
+        try {
+            while (hwmBuffer.hasRemaining()) hwmFile.write(hwmBuffer, hwmBuffer.position());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not persist id high-water mark", e);
+        }
+    }
+
+    private static final class Block {
+        long next;
+        long end;
+        int size; // of the last block handed out
+    }
+}
@@ -1,16 +1,83 @@
 package com.cafepos.infra;
 
 import com.cafepos.domain.*;
-import java.util.*;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 
+/** Concurrent repository keyed by primitive order id; see {@link LongOrderMap}. */
 public final class InMemoryOrderRepository implements OrderRepository {
-    private final Map<Long, Order> store = new HashMap<>();
+    private final LongOrderMap store = new LongOrderMap();
+    // orders from the last snapshot that have not been touched yet; decoded on first lookup
+    private final OrderSnapshot base;
+    private volatile RuntimeException lastSnapshotFailure;
+    private final LongAdder snapshotFailures = new LongAdder();
+
+    public InMemoryOrderRepository() {
+        this.base = null;
+    }
+
+    /** Warm start: serves the orders in {@code base} lazily instead of decoding them up front. */
+    public InMemoryOrderRepository(OrderSnapshot base) {
+        if (base == null) throw new IllegalArgumentException("snapshot required");
+        this.base = base;
+    }
 
     @Override public void save(Order order) {
         store.put(order.id(), order);
     }
-    
+
     @Override public Optional<Order> findById(long id) {
-        return Optional.ofNullable(store.get(id));
+        Order order = store.get(id);
+        if (order == null && base != null) {
+            order = base.load(id).map(o -> store.putIfAbsent(o.id(), o)).orElse(null);
+        }
+        return Optional.ofNullable(order);
+    }
+
+    /**
+     * Writes every order to {@code file}. Untouched orders from the base snapshot are copied over
+     * byte for byte, without being decoded.
+     */
+    public void writeSnapshot(Path file) {
+        OrderSnapshot.write(store.values(), base, file);
+    }
+
+    /**
+     * Writes a snapshot to {@code file} every {@code period}; cancel the returned future to stop.
+     * A failed write is counted in {@link #snapshotFailures()}, kept in {@link #lastSnapshotFailure()}
+     * and retried next period.
+     */
+    public ScheduledFuture<?> scheduleSnapshots(Path file, long period, TimeUnit unit) {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "order-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.setContinueExistingPeriodicTasksAfterShutdownPolicy(true);
+        timer.setRemoveOnCancelPolicy(true);
+        // an exception escaping the task would silently cancel every later snapshot
+        ScheduledFuture<?> task = timer.scheduleAtFixedRate(() -> {
+            try {
+                writeSnapshot(file);
+                lastSnapshotFailure = null;
+            } catch (RuntimeException e) {
+                lastSnapshotFailure = e;
+                snapshotFailures.increment();
+            }
+        }, period, period, unit);
+        timer.shutdown(); // the periodic task keeps running until cancelled
+        return task;
+    }
+
+    /** Why the last scheduled snapshot failed, or null if it was written. */
+    public RuntimeException lastSnapshotFailure() {
+        return lastSnapshotFailure;
+    }
+
+    /** Scheduled snapshots that failed to write. */
+    public long snapshotFailures() {
+        return snapshotFailures.sum();
     }
-}
\ No newline at end of file
+}
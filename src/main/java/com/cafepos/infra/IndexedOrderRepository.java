@@ -0,0 +1,227 @@
+package com.cafepos.infra;
+
+import com.cafepos.domain.*;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Wraps another repository and keeps secondary indexes for reporting queries, updated on every
+ * {@link #save}: ordered id and creation-time indexes, plus bitmaps per status, product id and
+ * payment type over a dense per-order ordinal. Status and payment changes become visible to
+ * queries once the order is saved again.
+ *
+ * Queries with a creation-time range come back oldest first, walking the time index; queries
+ * with only an id range come back in id order, walking the id index; other queries come back in
+ * first-save order. Status, product and payment conditions are checked against the bitmaps along
+ * the way. {@link #page} hands results out a page at a time and resumes the walk from its cursor
+ * without re-reading earlier pages. {@link #stream} is lazy and built on the same pages: each page
+ * is read under the read lock, so no page sees an index update half done, and a large report never
+ * holds more than one page of matches at once.
+ */
+public final class IndexedOrderRepository implements OrderRepository {
+    static final int STREAM_PAGE = 256;
+
+    private final OrderRepository delegate;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private Entry[] entries = new Entry[64];
+    private int count;
+    private final NavigableMap<Long, Integer> byId = new TreeMap<>();
+    private final NavigableSet<TimeKey> byTime = new TreeSet<>();
+    private final Map<OrderStatus, BitSet> byStatus = new EnumMap<>(OrderStatus.class);
+    private final Map<String, BitSet> byProduct = new HashMap<>();
+    private final Map<String, BitSet> byPaymentType = new HashMap<>();
+
+    public IndexedOrderRepository(OrderRepository delegate) {
+        if (delegate == null) throw new IllegalArgumentException("delegate repository required");
+        this.delegate = delegate;
+    }
+
+    @Override public void save(Order order) {
+        delegate.save(order);
+        index(order);
+    }
+
+    @Override public Optional<Order> findById(long id) {
+        return delegate.findById(id);
+    }
+
+    /** Streams the orders matching {@code q}, in the order described above, fetching them a page at a time. */
+    public Stream<Order> stream(OrderQuery q) {
+        if (q == null) throw new IllegalArgumentException("query required");
+        return StreamSupport.stream(new PageSpliterator(q), false);
+    }
+
+    /** Up to {@code limit} matches starting at {@code cursor} (0 for the first page). */
+    public Page page(OrderQuery q, int cursor, int limit) {
+        if (cursor < 0) throw new IllegalArgumentException("cursor must be >= 0");
+        if (limit <= 0) throw new IllegalArgumentException("limit must be > 0");
+        List<Order> out = new ArrayList<>(Math.min(limit, 64));
+        int[] next = {-1};
+        lock.readLock().lock();
+        try {
+            walk(q, cursor - 1, ord -> {
+                if (out.size() == limit) {
+                    next[0] = ord + 1;
+                    return false;
+                }
+                out.add(entries[ord].order());
+                return true;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new Page(out, next[0]);
+    }
+
+    public int count(OrderQuery q) {
+        int[] n = {0};
+        lock.readLock().lock();
+        try {
+            walk(q, -1, ord -> {
+                n[0]++;
+                return true;
+            });
+            return n[0];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** One page of results; pass the opaque {@code nextCursor} to {@link #page} for the next one (-1 when done). */
+    public static record Page(List<Order> orders, int nextCursor) {
+        public boolean hasMore() {
+            return nextCursor >= 0;
+        }
+    }
+
+    private void index(Order order) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = ordinals.get(order.id());
+            int ord;
+            if (existing == null) {
+                ord = count++;
+                if (ord == entries.length) entries = Arrays.copyOf(entries, ord * 2);
+                ordinals.put(order.id(), ord);
+                byId.put(order.id(), ord);
+                byTime.add(new TimeKey(order.createdAtMillis(), ord));
+            } else {
+                ord = existing;
+                Entry old = entries[ord];
+                byStatus.get(old.status()).clear(ord);
+                for (String p : old.products()) byProduct.get(p).clear(ord);
+                if (old.paymentType() != null) byPaymentType.get(old.paymentType()).clear(ord);
+            }
+            Set<String> products = new HashSet<>();
+            for (LineItem li : order.items()) products.add(li.product().id());
+            String paymentType = order.paymentType().orElse(null);
+            entries[ord] = new Entry(order, order.status(), products, paymentType);
+            byStatus.computeIfAbsent(order.status(), k -> new BitSet()).set(ord);
+            for (String p : products) byProduct.computeIfAbsent(p, k -> new BitSet()).set(ord);
+            if (paymentType != null) byPaymentType.computeIfAbsent(paymentType, k -> new BitSet()).set(ord);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Feeds the ordinals matching {@code q} to {@code visit} in result order, starting at ordinal
+     * {@code from} (-1 for the beginning), until it returns false. Caller holds the read lock.
+     */
+    private void walk(OrderQuery q, int from, IntPredicate visit) {
+        if (from >= count) return; // stale or foreign cursor
+        BitSet filter = attributeMatches(q);
+        boolean byCreated = q.createdFrom() != Long.MIN_VALUE || q.createdTo() != Long.MAX_VALUE;
+        boolean byIdRange = q.idFrom() != Long.MIN_VALUE || q.idTo() != Long.MAX_VALUE;
+        if (byCreated) {
+            if (q.createdFrom() >= q.createdTo()) return;
+            TimeKey start = new TimeKey(q.createdFrom(), 0);
+            if (from >= 0) {
+                TimeKey resume = new TimeKey(entries[from].order().createdAtMillis(), from);
+                if (resume.compareTo(start) > 0) start = resume;
+            }
+            for (TimeKey k : byTime.subSet(start, true, new TimeKey(q.createdTo(), 0), false)) {
+                int ord = k.ordinal();
+                if (byIdRange && !inIdRange(q, ord)) continue;
+                if ((filter == null || filter.get(ord)) && !visit.test(ord)) return;
+            }
+        } else if (byIdRange) {
+            if (q.idFrom() >= q.idTo()) return;
+            long start = from >= 0 ? Math.max(q.idFrom(), entries[from].order().id()) : q.idFrom();
+            for (int ord : byId.subMap(start, true, q.idTo(), false).values()) {
+                if ((filter == null || filter.get(ord)) && !visit.test(ord)) return;
+            }
+        } else {
+            int ord = from >= 0 ? from : 0;
+            while (ord < count) {
+                if (filter != null) {
+                    ord = filter.nextSetBit(ord);
+                    if (ord < 0 || ord >= count) return;
+                }
+                if (!visit.test(ord)) return;
+                ord++;
+            }
+        }
+    }
+
+    private boolean inIdRange(OrderQuery q, int ord) {
+        long id = entries[ord].order().id();
+        return id >= q.idFrom() && id < q.idTo();
+    }
+
+    /** Orders matching the status, product and payment conditions, or null if the query sets none. */
+    private BitSet attributeMatches(OrderQuery q) {
+        BitSet bits = null;
+        if (q.status() != null) bits = and(bits, byStatus.get(q.status()));
+        if (q.productId() != null) bits = and(bits, byProduct.get(q.productId()));
+        if (q.paymentType() != null) bits = and(bits, byPaymentType.get(q.paymentType()));
+        return bits;
+    }
+
+    private static BitSet and(BitSet acc, BitSet index) {
+        if (index == null) return new BitSet();
+        if (acc == null) return (BitSet) index.clone();
+        acc.and(index);
+        return acc;
+    }
+
+    /** Walks the matches one {@link #page} at a time as the stream pulls them. */
+    private final class PageSpliterator extends Spliterators.AbstractSpliterator<Order> {
+        private final OrderQuery query;
+        private List<Order> buffer = List.of();
+        private int next;
+        private int cursor; // of the page after the buffer; -1 once there is none
+
+        PageSpliterator(OrderQuery query) {
+            super(Long.MAX_VALUE, ORDERED | NONNULL);
+            this.query = query;
+        }
+
+        @Override public boolean tryAdvance(Consumer<? super Order> action) {
+            while (next == buffer.size()) {
+                if (cursor < 0) return false;
+                Page p = page(query, cursor, STREAM_PAGE);
+                buffer = p.orders();
+                next = 0;
+                cursor = p.nextCursor();
+            }
+            action.accept(buffer.get(next++));
+            return true;
+        }
+    }
+
+    private record Entry(Order order, OrderStatus status, Set<String> products, String paymentType) {}
+
+    private record TimeKey(long at, int ordinal) implements Comparable<TimeKey> {
+        @Override public int compareTo(TimeKey o) {
+            int c = Long.compare(at, o.at);
+            return c != 0 ? c : Integer.compare(ordinal, o.ordinal);
+        }
+    }
+}
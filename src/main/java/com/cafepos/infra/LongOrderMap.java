@@ -0,0 +1,165 @@
+package com.cafepos.infra;
+
+import com.cafepos.domain.Order;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrent {@code long -> Order} map split into independently locked shards, each an
+ * open-addressing table over primitive keys, so lookups never box the id.
+ * Reads are optimistic (no lock taken unless a write overlaps them); writes lock one shard.
+ */
+final class LongOrderMap {
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    private final Shard[] shards;
+    private final int shardShift;
+
+    LongOrderMap() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    LongOrderMap(int concurrency) {
+        int n = Integer.highestOneBit(Math.max(1, concurrency - 1)) << 1;
+        shards = new Shard[n];
+        for (int i = 0; i < n; i++) shards[i] = new Shard();
+        shardShift = 64 - Integer.numberOfTrailingZeros(n);
+    }
+
+    Order get(long key) {
+        long h = key * GOLDEN;
+        return shardFor(h).get(key, h);
+    }
+
+    void put(long key, Order value) {
+        long h = key * GOLDEN;
+        shardFor(h).put(key, h, value, false);
+    }
+
+    /** Stores {@code value} unless the key is present; returns the value now mapped. */
+    Order putIfAbsent(long key, Order value) {
+        long h = key * GOLDEN;
+        return shardFor(h).put(key, h, value, true);
+    }
+
+    boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    int size() {
+        int n = 0;
+        for (Shard s : shards) n += s.size();
+        return n;
+    }
+
+    /** Point-in-time copy of the values, one shard at a time. */
+    List<Order> values() {
+        List<Order> out = new ArrayList<>();
+        for (Shard s : shards) s.copyValuesTo(out);
+        return out;
+    }
+
+    private Shard shardFor(long hash) {
+        // top bits pick the shard, low bits pick the slot inside it
+        return shards.length == 1 ? shards[0] : shards[(int) (hash >>> shardShift)];
+    }
+
+    private static final class Table {
+        final long[] keys;
+        final Order[] values; // null marks an empty slot
+        final int mask;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new Order[capacity];
+            mask = capacity - 1;
+        }
+    }
+
+    private static final class Shard {
+        private final StampedLock lock = new StampedLock();
+        private volatile Table table = new Table(16);
+        private int size;
+
+        Order get(long key, long hash) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                Order v = find(table, key, hash);
+                if (lock.validate(stamp)) return v;
+            }
+            stamp = lock.readLock();
+            try {
+                return find(table, key, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private static Order find(Table t, long key, long hash) {
+            // bounded by capacity so a torn optimistic read can't spin forever
+            for (int i = (int) hash & t.mask, n = 0; n <= t.mask; i = (i + 1) & t.mask, n++) {
+                Order v = t.values[i];
+                if (v == null) return null;
+                if (t.keys[i] == key) return v;
+            }
+            return null;
+        }
+
+        Order put(long key, long hash, Order value, boolean onlyIfAbsent) {
+            if (value == null) throw new IllegalArgumentException("order required");
+            long stamp = lock.writeLock();
+            try {
+                Table t = table;
+                int i = (int) hash & t.mask;
+                while (t.values[i] != null) {
+                    if (t.keys[i] == key) {
+                        if (onlyIfAbsent) return t.values[i];
+                        t.values[i] = value;
+                        return value;
+                    }
+                    i = (i + 1) & t.mask;
+                }
+                t.keys[i] = key;
+                t.values[i] = value;
+                if (++size > (t.mask + 1) >> 1) table = resize(t);
+                return value;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private static Table resize(Table old) {
+            Table t = new Table((old.mask + 1) << 1);
+            for (int j = 0; j <= old.mask; j++) {
+                Order v = old.values[j];
+                if (v == null) continue;
+                long key = old.keys[j];
+                int i = (int) (key * GOLDEN) & t.mask;
+                while (t.values[i] != null) i = (i + 1) & t.mask;
+                t.keys[i] = key;
+                t.values[i] = v;
+            }
+            return t;
+        }
+
+        int size() {
+            long stamp = lock.readLock();
+            try {
+                return size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void copyValuesTo(List<Order> out) {
+            long stamp = lock.readLock();
+            try {
+                for (Order v : table.values) if (v != null) out.add(v);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.cafepos.infra;
+
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.common.Money;
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+import com.cafepos.domain.OrderStatus;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary encoding shared by the order log and snapshots. An order header is
+ * {@code long id, long createdAt, byte status, int typeLen, paymentType} (length -1 when unpaid);
+ * a line is {@code int qty, long unitCents, int idLen, id, int nameLen, name}.
+ * Lines are decoded as {@link SimpleProduct}s carrying the stored id, name and unit price.
+ */
+final class OrderCodec {
+    private OrderCodec() {}
+
+    /** Makes sure {@code buf} has {@code needed} bytes free, growing it if not. */
+    static ByteBuffer ensure(ByteBuffer buf, int needed) {
+        if (buf.remaining() >= needed) return buf;
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(buf.capacity() * 2, buf.position() + needed));
+        buf.flip();
+        return bigger.put(buf);
+    }
+
+    static ByteBuffer putHeader(ByteBuffer out, Order order) {
+        byte[] type = order.paymentType().map(t -> t.getBytes(StandardCharsets.UTF_8)).orElse(null);
+        out = ensure(out, 2 * Long.BYTES + 1 + Integer.BYTES + (type == null ? 0 : type.length));
+        out.putLong(order.id()).putLong(order.createdAtMillis()).put((byte) order.status().ordinal());
+        if (type == null) out.putInt(-1);
+        else out.putInt(type.length).put(type);
+        return out;
+    }
+
+    static Order getHeader(ByteBuffer in) {
+        long id = in.getLong();
+        long createdAt = in.getLong();
+        OrderStatus status = OrderStatus.values()[in.get()];
+        int len = in.getInt();
+        String type = null;
+        if (len >= 0) {
+            byte[] bytes = new byte[len];
+            in.get(bytes);
+            type = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return Order.restore(id, createdAt, status, type);
+    }
+
+    static ByteBuffer putLine(ByteBuffer out, LineItem li) {
+        byte[] id = li.product().id().getBytes(StandardCharsets.UTF_8);
+        byte[] name = li.product().name().getBytes(StandardCharsets.UTF_8);
+        out = ensure(out, Integer.BYTES + Long.BYTES + 2 * Integer.BYTES + id.length + name.length);
+        out.putInt(li.quantity()).putLong(li.lineTotal().asCents() / li.quantity());
+        out.putInt(id.length).put(id).putInt(name.length).put(name);
+        return out;
+    }
+
+    static LineItem getLine(ByteBuffer in) {
+        int qty = in.getInt();
+        long unitCents = in.getLong();
+        String id = getString(in);
+        String name = getString(in);
+        return new LineItem(new SimpleProduct(id, name, Money.ofCents(unitCents)), qty);
+    }
+
+    private static String getString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
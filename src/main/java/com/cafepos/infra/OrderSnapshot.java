@@ -0,0 +1,163 @@
+package com.cafepos.infra;
+
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Read-only, memory-mapped snapshot of a set of orders.
+ *
+ * Layout: a header ({@code int magic, int version, int count, long indexOffset}), the order
+ * records (an {@link OrderCodec} order header, {@code int lineCount}, lines...), then an index of
+ * {@code (long id, long offset)} pairs sorted by id. {@link #open} only maps the file and reads the header; orders are decoded
+ * one at a time by {@link #load}, which binary-searches the index, so opening costs the same
+ * whatever the number of orders.
+ */
+public final class OrderSnapshot {
+    private static final int MAGIC = 0x43504F53; // "CPOS"
+    private static final int VERSION = 1;
+    private static final int HEADER = 2 * Integer.BYTES + Integer.BYTES + Long.BYTES;
+    private static final int INDEX_ENTRY = 2 * Long.BYTES;
+
+    private final MappedByteBuffer map;
+    private final int count;
+    private final int indexOffset;
+
+    private OrderSnapshot(MappedByteBuffer map) {
+        if (map.capacity() < HEADER || map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+            throw new IllegalStateException("not an order snapshot");
+        }
+        this.map = map;
+        this.count = map.getInt(8);
+        this.indexOffset = (int) map.getLong(12);
+    }
+
+    public static OrderSnapshot open(Path file) {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new OrderSnapshot(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open snapshot " + file, e);
+        }
+    }
+
+    /**
+     * Writes {@code orders} to {@code file}. The snapshot is built next to the target and moved
+     * into place, so a crash mid-write leaves the previous snapshot intact.
+     */
+    public static void write(Collection<Order> orders, Path file) {
+        write(orders, null, file);
+    }
+
+    /**
+     * Writes {@code orders} plus every order of {@code base} (which may be null) whose id is not
+     * among them. Those are copied from the base file as they are rather than decoded and
+     * re-encoded, so carrying forward a large, mostly untouched snapshot costs a byte copy.
+     */
+    public static void write(Collection<Order> orders, OrderSnapshot base, Path file) {
+        Order[] sorted = orders.toArray(new Order[0]);
+        Arrays.sort(sorted, (a, b) -> Long.compare(a.id(), b.id()));
+        int baseCount = base == null ? 0 : base.count;
+        int capacity = Math.max(1024, sorted.length * 64 + (base == null ? 0 : base.indexOffset - HEADER));
+        ByteBuffer body = ByteBuffer.allocate(capacity);
+        long[] ids = new long[sorted.length + baseCount];
+        long[] offsets = new long[ids.length];
+        int n = 0;
+        for (int i = 0, b = 0; i < sorted.length || b < baseCount; n++) {
+            long baseId = b < baseCount ? base.idAt(b) : Long.MAX_VALUE;
+            offsets[n] = HEADER + body.position();
+            if (i < sorted.length && sorted[i].id() <= baseId) {
+                if (sorted[i].id() == baseId) b++; // the saved order replaces the base one
+                ids[n] = sorted[i].id();
+                var items = sorted[i].items();
+                body = OrderCodec.putHeader(body, sorted[i]);
+                body = OrderCodec.ensure(body, Integer.BYTES);
+                body.putInt(items.size());
+                for (LineItem li : items) body = OrderCodec.putLine(body, li);
+                i++;
+            } else {
+                ids[n] = baseId;
+                ByteBuffer record = base.record(b++);
+                body = OrderCodec.ensure(body, record.remaining());
+                body.put(record);
+            }
+        }
+        body.flip();
+        long indexOffset = HEADER + body.limit();
+        long size = indexOffset + (long) n * INDEX_ENTRY;
+        if (size > Integer.MAX_VALUE) throw new IllegalStateException("snapshot too large: " + size);
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.putInt(MAGIC).putInt(VERSION).putInt(n).putLong(indexOffset);
+            out.put(body);
+            for (int i = 0; i < n; i++) out.putLong(ids[i]).putLong(offsets[i]);
+            out.force();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write snapshot " + file, e);
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not publish snapshot " + file, e);
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /** Id of the {@code i}-th order in id order. */
+    public long idAt(int i) {
+        return map.getLong(indexOffset + i * INDEX_ENTRY);
+    }
+
+    public boolean contains(long id) {
+        return indexOf(id) >= 0;
+    }
+
+    /** Decodes the order with {@code id}, or empty if the snapshot does not hold it. */
+    public Optional<Order> load(long id) {
+        int i = indexOf(id);
+        if (i < 0) return Optional.empty();
+        ByteBuffer in = map.duplicate();
+        in.position((int) offsetAt(i));
+        Order order = OrderCodec.getHeader(in);
+        int lines = in.getInt();
+        for (int l = 0; l < lines; l++) order.addItem(OrderCodec.getLine(in));
+        return Optional.of(order);
+    }
+
+    /** The encoded bytes of the {@code i}-th order; records are stored back to back in id order. */
+    private ByteBuffer record(int i) {
+        int start = (int) offsetAt(i);
+        int end = i + 1 < count ? (int) offsetAt(i + 1) : indexOffset;
+        return map.slice(start, end - start);
+    }
+
+    private long offsetAt(int i) {
+        return map.getLong(indexOffset + i * INDEX_ENTRY + Long.BYTES);
+    }
+
+    private int indexOf(long id) {
+        int lo = 0, hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long midId = idAt(mid);
+            if (midId < id) lo = mid + 1;
+            else if (midId > id) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+}
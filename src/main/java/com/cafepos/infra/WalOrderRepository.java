@@ -0,0 +1,323 @@
+package com.cafepos.infra;
+
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.domain.*;
+import com.cafepos.observers.EventKind;
+import com.cafepos.observers.OrderObserver;
+import com.cafepos.observers.OrderUpdate;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * File-backed repository that appends order mutations (create, add line, remove last line, paid)
+ * to a segmented write-ahead log and replays it into memory on startup.
+ *
+ * Each {@link #save} diffs an open order against what is already logged and appends only the
+ * change. Paying an order logs it as one closed record holding its final header and lines; saving
+ * a paid order again logs nothing unless its lines changed, in which case a new closed record
+ * replaces the old one.
+ * Records from a batch of saves are written together and forced to disk once every
+ * {@code fsyncEvery} saves (group commit); {@link #sync()} and {@link #close()} force immediately.
+ * When the active segment grows past {@code segmentBytes} (and on startup, if the log holds the
+ * history of orders paid since the last compaction) the log is compacted: open orders are rewritten
+ * as their create and add records, paid orders as one closed record each holding the final header
+ * and lines, and older segments are deleted. Paid orders stay readable; only their history goes.
+ * Replayed lines come back as {@link SimpleProduct}s carrying the logged id, name and unit price.
+ */
+public final class WalOrderRepository implements OrderRepository, OrderObserver, Closeable {
+    public static final int DEFAULT_FSYNC_EVERY = 32;
+    public static final long DEFAULT_SEGMENT_BYTES = 4L * 1024 * 1024;
+
+    private static final byte CREATE = 1, ADD = 2, REMOVE = 3, PAID = 4, CLOSED = 5;
+    private static final int HEADER = 8; // int length + int crc
+
+    private final Path dir;
+    private final int fsyncEvery;
+    private final long segmentBytes;
+    private final Map<Long, Order> orders = new HashMap<>();
+    // lines already in the log per order; Order.items() snapshots are immutable so identity diffing is safe
+    private final Map<Long, List<LineItem>> logged = new HashMap<>();
+    private final Set<Long> closed = new HashSet<>();
+    // closed orders whose earlier create/add records are still in the log, i.e. paid since the last compaction
+    private final Set<Long> history = new HashSet<>();
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private FileChannel segment;
+    private long segmentNo;
+    private long compactAt;
+    private int unsynced;
+
+    public WalOrderRepository(Path dir) {
+        this(dir, DEFAULT_FSYNC_EVERY, DEFAULT_SEGMENT_BYTES);
+    }
+
+    public WalOrderRepository(Path dir, int fsyncEvery, long segmentBytes) {
+        if (dir == null) throw new IllegalArgumentException("dir required");
+        if (fsyncEvery <= 0) throw new IllegalArgumentException("fsyncEvery must be > 0");
+        if (segmentBytes <= 0) throw new IllegalArgumentException("segmentBytes must be > 0");
+        this.dir = dir;
+        this.fsyncEvery = fsyncEvery;
+        this.segmentBytes = segmentBytes;
+        boolean leftover;
+        try {
+            Files.createDirectories(dir);
+            List<Path> segments = segments();
+            for (Path p : segments) replay(p);
+            leftover = segments.size() > 1;
+            segmentNo = segments.isEmpty() ? 1 : segmentNumber(segments.get(segments.size() - 1));
+            segment = FileChannel.open(segmentPath(segmentNo),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            compactAt = segmentBytes;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open order log in " + dir, e);
+        }
+        // leftover segments mean a compaction was interrupted before it deleted them all
+        if (!history.isEmpty() || leftover) compact();
+        for (Order o : orders.values()) o.register(this);
+    }
+
+    @Override public synchronized void save(Order order) {
+        if (order == null) throw new IllegalArgumentException("order required");
+        long id = order.id();
+        List<LineItem> prev = logged.get(id);
+        List<LineItem> cur = order.items();
+        if (closed.contains(id) || prev == null && order.status() == OrderStatus.PAID) {
+            orders.put(id, order);
+            if (sameLines(prev, cur)) return;
+            logged.put(id, cur);
+            append(CLOSED, id, order, null);
+            if (prev != null) history.add(id);
+            closed.add(id);
+            commit();
+            return;
+        }
+        if (prev == null) {
+            append(CREATE, id, order, null);
+            prev = List.of();
+            order.register(this);
+        }
+        orders.put(id, order);
+        int common = 0;
+        while (common < prev.size() && common < cur.size() && prev.get(common) == cur.get(common)) common++;
+        for (int i = prev.size(); i > common; i--) append(REMOVE, id, null, null);
+        for (int i = common; i < cur.size(); i++) append(ADD, id, null, cur.get(i));
+        logged.put(id, cur);
+        commit();
+    }
+
+    @Override public synchronized Optional<Order> findById(long id) {
+        return Optional.ofNullable(orders.get(id));
+    }
+
+    /** Highest order id in the log, or 0 if it is empty. */
+    public synchronized long maxOrderId() {
+        long max = 0;
+        for (long id : orders.keySet()) max = Math.max(max, id);
+        return max;
+    }
+
+    /** Logs the paid event of any order this repository has saved. */
+    @Override public void updated(Order order, String eventType) {
+        if (EventKind.fromLegacy(eventType) == EventKind.PAID) paid(order);
+    }
+
+    @Override public void onEvent(OrderUpdate event) {
+        if (event.kind() == EventKind.PAID) paid(event.order());
+    }
+
+    @Override public int subscriptions() {
+        return EventKind.PAID.bit();
+    }
+
+    /** Logs the order's final state as one closed record; its earlier records become history. */
+    private synchronized void paid(Order order) {
+        long id = order.id();
+        if (!logged.containsKey(id) || closed.contains(id)) return;
+        orders.put(id, order);
+        logged.put(id, order.items());
+        append(CLOSED, id, order, null);
+        closed.add(id);
+        history.add(id);
+        commit();
+    }
+
+    private static boolean sameLines(List<LineItem> a, List<LineItem> b) {
+        if (a == null || a.size() != b.size()) return false;
+        for (int i = 0; i < a.size(); i++) if (a.get(i) != b.get(i)) return false;
+        return true;
+    }
+
+    /** Forces every record written so far to disk. */
+    public synchronized void sync() {
+        try {
+            writePending();
+            segment.force(false);
+            unsynced = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Rewrites every order into a fresh segment, paid ones as a single record, and deletes the older ones. */
+    public synchronized void compact() {
+        try {
+            sync();
+            segment.close();
+            long previous = segmentNo;
+            segmentNo++;
+            segment = FileChannel.open(segmentPath(segmentNo),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            history.clear();
+            for (Order o : orders.values()) {
+                List<LineItem> lines = logged.get(o.id());
+                if (closed.contains(o.id())) {
+                    append(CLOSED, o.id(), o, null);
+                    continue;
+                }
+                append(CREATE, o.id(), o, null);
+                for (LineItem li : lines) append(ADD, o.id(), null, li);
+            }
+            sync();
+            // newest first: a crash part way leaves a prefix of the old log, which replays cleanly
+            List<Path> old = segments();
+            for (int i = old.size() - 1; i >= 0; i--) {
+                if (segmentNumber(old.get(i)) <= previous) Files.deleteIfExists(old.get(i));
+            }
+            // don't compact again until the live data has at least doubled
+            compactAt = Math.max(segmentBytes, 2 * segment.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not compact order log in " + dir, e);
+        }
+    }
+
+    @Override public synchronized void close() {
+        sync();
+        try {
+            segment.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void commit() {
+        try {
+            writePending();
+            if (++unsynced >= fsyncEvery) {
+                segment.force(false);
+                unsynced = 0;
+            }
+            if (segment.size() > compactAt) compact();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writePending() throws IOException {
+        pending.flip();
+        while (pending.hasRemaining()) segment.write(pending);
+        pending.clear();
+    }
+
+    private void append(byte type, long orderId, Order order, LineItem li) {
+        pending = OrderCodec.ensure(pending, HEADER + 1 + Long.BYTES);
+        int start = pending.position();
+        pending.putInt(0).putInt(0).put(type).putLong(orderId);
+        if (type == ADD) pending = OrderCodec.putLine(pending, li);
+        else if (type == CREATE) pending = OrderCodec.putHeader(pending, order);
+        else if (type == CLOSED) {
+            List<LineItem> lines = logged.get(orderId);
+            pending = OrderCodec.putHeader(pending, order);
+            pending = OrderCodec.ensure(pending, Integer.BYTES);
+            pending.putInt(lines.size());
+            for (LineItem line : lines) pending = OrderCodec.putLine(pending, line);
+        }
+        int size = pending.position() - start - HEADER;
+        crc.reset();
+        crc.update(pending.array(), start + HEADER, size);
+        pending.putInt(start, size).putInt(start + Integer.BYTES, (int) crc.getValue());
+    }
+
+    private void replay(Path file) throws IOException {
+        ByteBuffer in;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            in = ByteBuffer.allocate((int) ch.size());
+            while (in.hasRemaining() && ch.read(in) >= 0) { }
+        }
+        in.flip();
+        int good = 0;
+        while (in.remaining() >= HEADER) {
+            int size = in.getInt();
+            int expected = in.getInt();
+            if (size <= 0 || size > in.remaining()) break;
+            crc.reset();
+            crc.update(in.array(), in.position(), size);
+            if ((int) crc.getValue() != expected) break;
+            int end = in.position() + size;
+            apply(in);
+            in.position(end);
+            good = end;
+        }
+        if (good < in.limit()) {
+            // torn tail from a crash mid-write: drop it so new records follow the last good one
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                ch.truncate(good);
+            }
+        }
+    }
+
+    private void apply(ByteBuffer in) {
+        byte type = in.get();
+        long id = in.getLong();
+        // a change to an order whose create record is gone (e.g. an older segment was lost) has nothing to apply to
+        if ((type == ADD || type == REMOVE || type == PAID) && !orders.containsKey(id)) return;
+        switch (type) {
+            case CREATE -> {
+                orders.put(id, OrderCodec.getHeader(in));
+                closed.remove(id);
+                history.remove(id);
+            }
+            case ADD -> orders.get(id).addItem(OrderCodec.getLine(in));
+            case REMOVE -> orders.get(id).removeLastItem();
+            case PAID -> {
+                orders.get(id).markPaid();
+                closed.add(id);
+                history.add(id);
+            }
+            case CLOSED -> {
+                Order o = OrderCodec.getHeader(in);
+                for (int n = in.getInt(); n > 0; n--) o.addItem(OrderCodec.getLine(in));
+                // earlier records of the order are history the next compaction can drop
+                if (orders.put(id, o) != null) history.add(id);
+                else history.remove(id);
+                closed.add(id);
+            }
+            default -> throw new IllegalStateException("Unknown log record type: " + type);
+        }
+        logged.put(id, orders.get(id).items());
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().matches("wal-\\d+\\.log"))
+                    .sorted(Comparator.comparingLong(WalOrderRepository::segmentNumber))
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long n) {
+        return dir.resolve(String.format("wal-%012d.log", n));
+    }
+
+    private static long segmentNumber(Path p) {
+        String name = p.getFileName().toString();
+        return Long.parseLong(name.substring(4, name.length() - 4));
+    }
+}
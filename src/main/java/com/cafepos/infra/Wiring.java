@@ -2,13 +2,41 @@ package com.cafepos.infra;
 import com.cafepos.app.CheckoutService;
 import com.cafepos.pricing.*;
 import com.cafepos.domain.*;
+import java.nio.file.Path;
 
 public final class Wiring {
     public static record Components(OrderRepository repo, PricingService pricing, CheckoutService checkout) {}
 
     public static Components createDefault() {
-        OrderRepository repo = new InMemoryOrderRepository();
-        PricingService pricing = new PricingService(new LoyaltyPercentDiscount(5), new FixedRateTaxPolicy(10));
+        return create(new InMemoryOrderRepository(), null);
+    }
+
+    /** Same as {@link #createDefault()} but checkout prices orders with {@code rules}. */
+    public static Components createDefault(RuleEngine rules) {
+        if (rules == null) throw new IllegalArgumentException("rules required");
+        return create(new InMemoryOrderRepository(), rules);
+    }
+
+    /**
+     * Same as {@link #createDefault()} but open orders are logged under {@code walDir} and survive a
+     * restart, and order ids come from a {@link BlockOrderIdAllocator} persisted there, so ids are
+     * never reused across restarts.
+     */
+    public static Components createDurable(Path walDir) {
+        return createDurable(walDir, 0);
+    }
+
+    /** {@link #createDurable(Path)} for till {@code nodeId} of several sharing an id space. */
+    public static Components createDurable(Path walDir, int nodeId) {
+        WalOrderRepository repo = new WalOrderRepository(walDir);
+        long used = repo.maxOrderId() & BlockOrderIdAllocator.MAX_SEQUENCE;
+        OrderIds.use(new BlockOrderIdAllocator(walDir.resolve("order-ids.hwm"), nodeId,
+                BlockOrderIdAllocator.DEFAULT_BLOCK_SIZE, used));
+        return create(repo, null);
+    }
+
+    private static Components create(OrderRepository repo, RuleEngine rules) {
+        PricingService pricing = new PricingService(new LoyaltyPercentDiscount(5), new FixedRateTaxPolicy(10), rules);
         CheckoutService checkout = new CheckoutService(repo, pricing);
         return new Components(repo, pricing, checkout);
     }
@@ -0,0 +1,202 @@
+package com.cafepos.observers;
+
+import com.cafepos.domain.Order;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs another observer off the publishing thread. Events go into a bounded queue drained by one
+ * daemon thread per observer, so they reach the delegate in the order they were published (and
+ * therefore in order per order); a slow observer only delays itself. What happens when the queue
+ * is full is set by {@link Overflow}. The delegate sees the order as it is when the event is
+ * delivered, not as it was when the event was published.
+ */
+public final class AsyncObserver implements OrderObserver, AutoCloseable {
+
+    public enum Overflow {
+        /** The publisher waits for room. Nothing is lost. */
+        BLOCK,
+        /** The oldest queued event is discarded to make room. */
+        DROP_OLDEST,
+        /**
+         * An event that carries nothing but the order ({@link OrderUpdate.Ready} and legacy
+         * string events) is discarded if the same order already has one of the same type queued;
+         * the delegate reads the order's latest state when that one is delivered. Events with a
+         * payload of their own, such as the line in {@link OrderUpdate.ItemAdded} or the amount
+         * in {@link OrderUpdate.Paid}, are never discarded: the publisher waits for room.
+         */
+        COALESCE_BY_ORDER
+    }
+
+    /** {@code update} is null for legacy events whose type is not an {@link EventKind}. */
+    private record Event(OrderUpdate update, Order order, String type, long enqueuedNanos) {}
+
+    private final OrderObserver delegate;
+    private final int capacity;
+    private final Overflow overflow;
+    private final ArrayDeque<Event> queue;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Thread worker;
+    private boolean closed;
+    private boolean busy;
+
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong lastLagNanos = new AtomicLong();
+    private final AtomicLong maxLagNanos = new AtomicLong();
+
+    public AsyncObserver(OrderObserver delegate, int capacity, Overflow overflow) {
+        if (delegate == null) throw new IllegalArgumentException("observer required");
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be > 0");
+        if (overflow == null) throw new IllegalArgumentException("overflow policy required");
+        this.delegate = delegate;
+        this.capacity = capacity;
+        this.overflow = overflow;
+        this.queue = new ArrayDeque<>(Math.min(capacity, 1024));
+        this.worker = new Thread(this::drain, "observer-" + delegate.getClass().getSimpleName());
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void updated(Order order, String eventType) {
+        OrderUpdate update = OrderUpdate.fromLegacy(order, eventType);
+        if (update != null) onEvent(update);
+        else enqueue(new Event(null, order, eventType, System.nanoTime()));
+    }
+
+    @Override
+    public void onEvent(OrderUpdate update) {
+        enqueue(new Event(update, update.order(), update.kind().legacyName(), System.nanoTime()));
+    }
+
+    /** The delegate's subscriptions, so unwanted kinds are never queued. */
+    @Override
+    public int subscriptions() {
+        return delegate.subscriptions();
+    }
+
+    private void enqueue(Event event) {
+        lock.lock();
+        try {
+            while (!closed && queue.size() >= capacity) {
+                if (overflow == Overflow.DROP_OLDEST) {
+                    queue.pollFirst();
+                    dropped.incrementAndGet();
+                } else if (overflow == Overflow.COALESCE_BY_ORDER && coalescable(event)
+                        && hasQueued(event.order, event.type)) {
+                    coalesced.incrementAndGet();
+                    return;
+                } else {
+                    notFull.awaitUninterruptibly();
+                }
+            }
+            if (closed) {
+                dropped.incrementAndGet();
+                return;
+            }
+            queue.addLast(event);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Whether the event says nothing beyond which order changed, so a queued twin can stand in for it. */
+    private static boolean coalescable(Event event) {
+        return event.update == null || event.update instanceof OrderUpdate.Ready;
+    }
+
+    private boolean hasQueued(Order order, String eventType) {
+        for (Iterator<Event> it = queue.descendingIterator(); it.hasNext(); ) {
+            Event e = it.next();
+            if (e.order == order && e.type.equals(eventType)) return true;
+        }
+        return false;
+    }
+
+    private void drain() {
+        while (true) {
+            Event e;
+            lock.lock();
+            try {
+                busy = false;
+                notFull.signalAll(); // also wakes awaitIdle
+                while (queue.isEmpty() && !closed) notEmpty.awaitUninterruptibly();
+                e = queue.pollFirst();
+                if (e == null) return; // closed and drained
+                busy = true;
+            } finally {
+                lock.unlock();
+            }
+            long lag = System.nanoTime() - e.enqueuedNanos;
+            lastLagNanos.set(lag);
+            maxLagNanos.accumulateAndGet(lag, Math::max);
+            try {
+                if (e.update != null) delegate.onEvent(e.update);
+                else delegate.updated(e.order, e.type);
+                delivered.incrementAndGet();
+            } catch (RuntimeException ex) {
+                failed.incrementAndGet(); // one bad event must not stop the others
+            }
+        }
+    }
+
+    /** Waits until every queued event has been delivered. Returns false on timeout. */
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (!queue.isEmpty() || busy) {
+                if (nanos <= 0) return false;
+                nanos = notFull.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Stops accepting events, delivers what is already queued, then stops the worker. */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Stats stats() {
+        int depth;
+        lock.lock();
+        try {
+            depth = queue.size();
+        } finally {
+            lock.unlock();
+        }
+        return new Stats(depth, delivered.get(), dropped.get(), coalesced.get(), failed.get(),
+                lastLagNanos.get(), maxLagNanos.get());
+    }
+
+    /** Queue depth, event counts, and how long delivered events waited in the queue. */
+    public static record Stats(int depth, long delivered, long dropped, long coalesced, long failed,
+                               long lastLagNanos, long maxLagNanos) {}
+}
@@ -5,8 +5,19 @@ import com.cafepos.domain.Order;
 public final class DeliveryDesk implements OrderObserver {
     @Override
     public void updated(Order order, String eventType) {
-        if ("ready".equals(eventType)) {
-            System.out.println("[Delivery] Order #" + order.id() + " is ready for delivery");
+        if (EventKind.fromLegacy(eventType) == EventKind.READY) {
+            onEvent(new OrderUpdate.Ready(order));
         }
     }
+
+    @Override
+    public void onEvent(OrderUpdate event) {
+        if (event.kind() != EventKind.READY) return;
+        System.out.println("[Delivery] Order #" + event.order().id() + " is ready for delivery");
+    }
+
+    @Override
+    public int subscriptions() {
+        return EventKind.READY.bit();
+    }
 }
@@ -0,0 +1,47 @@
+package com.cafepos.observers;
+
+/** Kinds of {@link OrderUpdate}. Observers subscribe with a bit mask of {@link #bit()} values. */
+public enum EventKind {
+    ITEM_ADDED("itemAdded"),
+    PAID("paid"),
+    READY("ready");
+
+    /** Mask subscribing to every kind. */
+    public static final int ALL = (1 << values().length) - 1;
+
+    private final String legacyName;
+
+    EventKind(String legacyName) {
+        this.legacyName = legacyName;
+    }
+
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    public boolean in(int mask) {
+        return (mask & bit()) != 0;
+    }
+
+    public static int mask(EventKind... kinds) {
+        int mask = 0;
+        for (EventKind k : kinds) mask |= k.bit();
+        return mask;
+    }
+
+    /** The string passed to {@link OrderObserver#updated(com.cafepos.domain.Order, String)}. */
+    public String legacyName() {
+        return legacyName;
+    }
+
+    /** Kind for a legacy event string, or {@code null} if it is not one of ours. */
+    public static EventKind fromLegacy(String eventType) {
+        if (eventType == null) return null;
+        return switch (eventType) {
+            case "itemAdded" -> ITEM_ADDED;
+            case "paid" -> PAID;
+            case "ready" -> READY;
+            default -> null;
+        };
+    }
+}
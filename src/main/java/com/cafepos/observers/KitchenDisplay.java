@@ -3,16 +3,29 @@ package com.cafepos.observers;
 import com.cafepos.domain.Order;
 
 public final class KitchenDisplay implements OrderObserver {
+    private static final int SUBSCRIPTIONS = EventKind.mask(EventKind.ITEM_ADDED, EventKind.PAID);
+
     @Override
     public void updated(Order order, String eventType) {
-        if ("itemAdded".equals(eventType)) {
-            if (!order.items().isEmpty()) {
-                var lastItem = order.items().get(order.items().size() - 1);
-                System.out.println("[Kitchen] Order #" + order.id() + ": " + 
-                    lastItem.quantity() + "x " + lastItem.product().name() + " added");
+        OrderUpdate event = OrderUpdate.fromLegacy(order, eventType);
+        if (event != null && event.kind().in(SUBSCRIPTIONS)) onEvent(event);
+    }
+
+    @Override
+    public void onEvent(OrderUpdate event) {
+        if (event instanceof OrderUpdate.ItemAdded added) {
+            var item = added.item();
+            if (item != null) {
+                System.out.println("[Kitchen] Order #" + added.order().id() + ": " +
+                    item.quantity() + "x " + item.product().name() + " added");
             }
-        } else if ("paid".equals(eventType)) {
-            System.out.println("[Kitchen] Order #" + order.id() + ": Payment received");
+        } else if (event instanceof OrderUpdate.Paid) {
+            System.out.println("[Kitchen] Order #" + event.order().id() + ": Payment received");
         }
     }
+
+    @Override
+    public int subscriptions() {
+        return SUBSCRIPTIONS;
+    }
 }
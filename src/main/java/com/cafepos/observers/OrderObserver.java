@@ -2,6 +2,20 @@ package com.cafepos.observers;
 
 import com.cafepos.domain.Order;
 
+/**
+ * Receives order events. {@link Order} delivers typed {@link OrderUpdate}s through
+ * {@link #onEvent}, and only for the kinds in {@link #subscriptions()}; observers that only
+ * implement the string form get every kind, forwarded to {@link #updated}.
+ */
 public interface OrderObserver {
     void updated(Order order, String eventType);
+
+    default void onEvent(OrderUpdate event) {
+        updated(event.order(), event.kind().legacyName());
+    }
+
+    /** {@link EventKind} bits this observer wants; read once, when it is registered. */
+    default int subscriptions() {
+        return EventKind.ALL;
+    }
 }
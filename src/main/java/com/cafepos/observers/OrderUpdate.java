@@ -0,0 +1,50 @@
+package com.cafepos.observers;
+
+import com.cafepos.common.Money;
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+
+/** Typed order event. One instance is shared by every observer it is delivered to. */
+public sealed interface OrderUpdate {
+    Order order();
+
+    EventKind kind();
+
+    /** {@code item} is the line that was added, or {@code null} if the order has no lines. */
+    record ItemAdded(Order order, LineItem item) implements OrderUpdate {
+        @Override public EventKind kind() {
+            return EventKind.ITEM_ADDED;
+        }
+    }
+
+    /** {@code amount} is what was charged, or {@code null} if whoever marked the order paid did not say. */
+    record Paid(Order order, Money amount) implements OrderUpdate {
+        @Override public EventKind kind() {
+            return EventKind.PAID;
+        }
+    }
+
+    record Ready(Order order) implements OrderUpdate {
+        @Override public EventKind kind() {
+            return EventKind.READY;
+        }
+    }
+
+    /**
+     * Builds the typed event for a legacy event string from the order's current state (a
+     * {@code Paid} event carries no amount), or
+     * returns {@code null} for strings that are not a known kind.
+     */
+    static OrderUpdate fromLegacy(Order order, String eventType) {
+        EventKind kind = EventKind.fromLegacy(eventType);
+        if (kind == null) return null;
+        return switch (kind) {
+            case ITEM_ADDED -> {
+                var items = order.items();
+                yield new ItemAdded(order, items.isEmpty() ? null : items.get(items.size() - 1));
+            }
+            case PAID -> new Paid(order, null); // the charge is not part of the order's state
+            case READY -> new Ready(order);
+        };
+    }
+}
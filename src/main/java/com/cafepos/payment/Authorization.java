@@ -0,0 +1,15 @@
+package com.cafepos.payment;
+
+import com.cafepos.common.Money;
+
+/**
+ * A request to take {@code amount} from {@code account} (a masked card number or wallet id).
+ * Requests with the same {@code idempotencyKey} are the same payment and are charged at most once.
+ */
+public record Authorization(String idempotencyKey, String method, String account, Money amount) {
+    public Authorization {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) throw new IllegalArgumentException("idempotency key required");
+        if (method == null || account == null) throw new IllegalArgumentException("method and account required");
+        if (amount == null) throw new IllegalArgumentException("amount required");
+    }
+}
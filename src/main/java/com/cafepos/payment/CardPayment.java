@@ -1,20 +1,41 @@
 package com.cafepos.payment;
-import com.cafepos.domain.Order;
-import com.cafepos.pricing.FixedRateTaxPolicy;
+
+import java.util.concurrent.CompletableFuture;
 
 public final class CardPayment implements PaymentStrategy { 
     private final String cardNumber; 
+    private final PaymentPipeline pipeline;
     
     public CardPayment(String cardNumber) {
+        this(cardNumber, null);
+    }
+
+    /** Card payment authorized through {@code pipeline}; without one it only prints. */
+    public CardPayment(String cardNumber, PaymentPipeline pipeline) {
         if (cardNumber == null || cardNumber.length() < 4) {
             throw new IllegalArgumentException("Card number must be at least 4 digits long");
         }
         this.cardNumber = cardNumber; 
+        this.pipeline = pipeline;
+    }
+
+    @Override
+    public void pay(PaymentRequest request) {
+        System.out.println("[Card] Customer paid " + request.amount() + " EUR with card " + maskedCard());
     }
 
-    @Override 
-    public void pay(Order order) {
-        String maskedCard = "**** **** **** " + cardNumber.substring(cardNumber.length() - 4);
-        System.out.println("[Card] Customer paid " + order.totalWithTax(new FixedRateTaxPolicy(10)) + " EUR with card " + maskedCard);
-    } 
+    @Override
+    public CompletableFuture<PaymentResult> payAsync(PaymentRequest request) {
+        if (pipeline == null) return PaymentStrategy.super.payAsync(request);
+        return pipeline.submit(new Authorization(request.idempotencyKey(), type(), maskedCard(), request.amount()));
+    }
+
+    private String maskedCard() {
+        return "**** **** **** " + cardNumber.substring(cardNumber.length() - 4);
+    }
+
+    @Override
+    public String type() {
+        return "CARD";
+    }
 }
\ No newline at end of file
@@ -1,8 +1,6 @@
 package com.cafepos.payment;
 
 import java.math.BigDecimal;
-import com.cafepos.domain.Order;
-import com.cafepos.pricing.FixedRateTaxPolicy;
 import com.cafepos.common.Money;
 
 public final class CashPayment implements PaymentStrategy { 
@@ -20,9 +18,9 @@ public final class CashPayment implements PaymentStrategy {
         return cashAmount;
     }
     
-    @Override 
-    public void pay(Order order) { 
-        Money total = order.totalWithTax(new FixedRateTaxPolicy(10));
+    @Override
+    public void pay(PaymentRequest request) {
+        Money total = request.amount();
         if (cashAmount != null) {
             BigDecimal changeAmount = cashAmount.asBigDecimal().subtract(total.asBigDecimal());
             Money change = changeAmount.compareTo(BigDecimal.ZERO) >= 0 ? Money.of(changeAmount) : Money.zero();
@@ -30,5 +28,10 @@ public final class CashPayment implements PaymentStrategy {
         } else {
             System.out.println("[Cash] Customer paid " + total + " EUR"); 
         }
-    } 
+    }
+
+    @Override
+    public String type() {
+        return "CASH";
+    }
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.cafepos.payment;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for the payment processor, for tests and offline tills. Approves every
+ * authorization except those for accounts in {@code declinedAccounts}, optionally after a fixed
+ * delay. Approvals are remembered by idempotency key, so a repeated request gets the original
+ * reference back instead of a second charge.
+ */
+public final class LocalPaymentProcessor implements PaymentProcessor {
+    private final Set<String> declinedAccounts;
+    private final long latencyMillis;
+    private final ConcurrentHashMap<String, PaymentResult> approvals = new ConcurrentHashMap<>();
+    private final AtomicLong nextReference = new AtomicLong(1);
+    private final AtomicLong calls = new AtomicLong();
+
+    public LocalPaymentProcessor() {
+        this(Set.of(), 0);
+    }
+
+    public LocalPaymentProcessor(Set<String> declinedAccounts, long latencyMillis) {
+        if (declinedAccounts == null) throw new IllegalArgumentException("declinedAccounts required");
+        if (latencyMillis < 0) throw new IllegalArgumentException("latency must be >= 0");
+        this.declinedAccounts = Set.copyOf(declinedAccounts);
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public PaymentResult authorize(Authorization auth) {
+        calls.incrementAndGet();
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return PaymentResult.timeout(auth.idempotencyKey(), auth.method(), auth.amount());
+            }
+        }
+        if (declinedAccounts.contains(auth.account())) {
+            return PaymentResult.declined(auth.idempotencyKey(), auth.method(), auth.amount(), "declined by issuer");
+        }
+        return approvals.computeIfAbsent(auth.idempotencyKey(), key -> PaymentResult.approved(
+                key, auth.method(), auth.amount(), String.format("LOCAL-%08d", nextReference.getAndIncrement())));
+    }
+
+    /** Number of authorization requests received, repeats included. */
+    public long calls() {
+        return calls.get();
+    }
+
+    /** Number of distinct payments approved. */
+    public int approvals() {
+        return approvals.size();
+    }
+}
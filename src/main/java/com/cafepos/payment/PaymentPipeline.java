@@ -0,0 +1,160 @@
+package com.cafepos.payment;
+
+import com.cafepos.domain.Order;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends card and wallet authorizations to a {@link PaymentProcessor} on a small worker pool, so
+ * the till gets a {@link CompletableFuture} straight away instead of waiting on the terminal.
+ *
+ * Payments are identified by idempotency key ({@link #keyFor} for an order). While a payment is
+ * in flight or once it is approved, submitting the same key again returns that payment's result
+ * rather than charging again; after a decline or an error the key may be retried. If the
+ * processor has not answered within the timeout the caller gets {@code TIMEOUT}, but the request
+ * keeps running: a late approval is still settled, and a retry with the same key returns it.
+ * Approved payments are handed to the {@link SettlementBatcher}, if there is one.
+ *
+ * Only in-flight payments and the most recent {@code maxApproved} approvals are remembered;
+ * declines and errors are forgotten as soon as they complete. A key whose approval has been
+ * evicted is authorized again if resubmitted, which the processor answers idempotently.
+ */
+public final class PaymentPipeline implements AutoCloseable {
+    public static final long DEFAULT_TIMEOUT_MILLIS = 5_000;
+    public static final int DEFAULT_MAX_APPROVED = 10_000;
+
+    private final PaymentProcessor processor;
+    private final SettlementBatcher settlement;
+    private final long timeoutMillis;
+    private final ExecutorService workers;
+    private final Map<String, CompletableFuture<PaymentResult>> inFlight = new HashMap<>(); // guarded by this
+    private final LinkedHashMap<String, PaymentResult> approved;                          // guarded by this
+    private final AtomicLong settlementFailures = new AtomicLong();
+
+    public PaymentPipeline(PaymentProcessor processor) {
+        this(processor, null, 4, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /** {@code settlement} may be null when approvals are settled elsewhere. */
+    public PaymentPipeline(PaymentProcessor processor, SettlementBatcher settlement, int workers, long timeoutMillis) {
+        this(processor, settlement, workers, timeoutMillis, DEFAULT_MAX_APPROVED);
+    }
+
+    public PaymentPipeline(PaymentProcessor processor, SettlementBatcher settlement, int workers, long timeoutMillis,
+                           int maxApproved) {
+        if (processor == null) throw new IllegalArgumentException("processor required");
+        if (workers <= 0) throw new IllegalArgumentException("workers must be > 0");
+        if (timeoutMillis <= 0) throw new IllegalArgumentException("timeout must be > 0");
+        if (maxApproved <= 0) throw new IllegalArgumentException("maxApproved must be > 0");
+        this.approved = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<String, PaymentResult> eldest) {
+                return size() > maxApproved;
+            }
+        };
+        this.processor = processor;
+        this.settlement = settlement;
+        this.timeoutMillis = timeoutMillis;
+        AtomicInteger n = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "payment-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** The idempotency key for paying {@code order}. */
+    public static String keyFor(Order order) {
+        return "order-" + order.id();
+    }
+
+    /** Starts (or joins) the authorization and returns its result, completed within the timeout. */
+    public CompletableFuture<PaymentResult> submit(Authorization auth) {
+        if (auth == null) throw new IllegalArgumentException("authorization required");
+        if (workers.isShutdown()) throw new IllegalStateException("payment pipeline closed");
+        String key = auth.idempotencyKey();
+        CompletableFuture<PaymentResult> payment;
+        synchronized (this) {
+            PaymentResult done = approved.get(key);
+            if (done != null) return CompletableFuture.completedFuture(done);
+            payment = inFlight.get(key);
+            if (payment == null) payment = start(auth);
+        }
+        return payment.copy().completeOnTimeout(
+                PaymentResult.timeout(auth.idempotencyKey(), auth.method(), auth.amount()),
+                timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers the payment as in flight, then authorizes it on a worker. Caller holds the lock.
+     * If the pool was shut down in the meantime the registration is undone.
+     */
+    private CompletableFuture<PaymentResult> start(Authorization auth) {
+        CompletableFuture<PaymentResult> payment = new CompletableFuture<>();
+        inFlight.put(auth.idempotencyKey(), payment);
+        CompletableFuture<PaymentResult> authorized;
+        try {
+            authorized = CompletableFuture.supplyAsync(() -> {
+                PaymentResult result = processor.authorize(auth);
+                if (result == null) throw new IllegalStateException("processor gave no result");
+                return result;
+            }, workers);
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(auth.idempotencyKey());
+            throw new IllegalStateException("payment pipeline closed", e);
+        }
+        authorized
+                .exceptionally(e -> PaymentResult.declined(auth.idempotencyKey(), auth.method(), auth.amount(),
+                        "processor error: " + e.getMessage()))
+                .thenApply(result -> {
+                    if (result.isApproved() && settlement != null) {
+                        try {
+                            settlement.add(result);
+                        } catch (RuntimeException e) {
+                            // the card was charged either way; the caller still gets the approval
+                            settlementFailures.incrementAndGet();
+                        }
+                    }
+                    synchronized (this) {
+                        inFlight.remove(auth.idempotencyKey());
+                        if (result.isApproved()) approved.put(auth.idempotencyKey(), result);
+                    }
+                    return result;
+                })
+                .whenComplete((result, error) -> {
+                    if (error != null) payment.completeExceptionally(error);
+                    else payment.complete(result);
+                });
+        return payment;
+    }
+
+    /** Approvals that could not be handed to the settlement batcher (e.g. it was closed or failed to write). */
+    public long settlementFailures() {
+        return settlementFailures.get();
+    }
+
+    /** Payments currently remembered: in flight plus retained approvals. */
+    public synchronized int tracked() {
+        return inFlight.size() + approved.size();
+    }
+
+    /** Stops taking payments, waits for those in flight, then flushes settlement. */
+    @Override
+    public void close() {
+        workers.shutdown();
+        try {
+            workers.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (settlement != null) settlement.flush();
+    }
+}
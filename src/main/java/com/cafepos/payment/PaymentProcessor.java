@@ -0,0 +1,10 @@
+package com.cafepos.payment;
+
+/**
+ * Authorizes card and wallet payments, usually over the network. Implementations may block and
+ * must treat a repeated {@link Authorization#idempotencyKey()} as the same payment.
+ */
+@FunctionalInterface
+public interface PaymentProcessor {
+    PaymentResult authorize(Authorization authorization);
+}
@@ -0,0 +1,21 @@
+package com.cafepos.payment;
+
+import com.cafepos.common.Money;
+import com.cafepos.domain.Order;
+
+/**
+ * What a {@link PaymentStrategy} should charge for an order: the total worked out by the pricing
+ * step, discount and tax included. Strategies charge {@code amount} as given and never price the
+ * order themselves, so the payment always matches the receipt.
+ */
+public record PaymentRequest(Order order, Money amount) {
+    public PaymentRequest {
+        if (order == null) throw new IllegalArgumentException("order required");
+        if (amount == null) throw new IllegalArgumentException("amount required");
+    }
+
+    /** The idempotency key for this payment; one per order. */
+    public String idempotencyKey() {
+        return PaymentPipeline.keyFor(order);
+    }
+}
@@ -0,0 +1,29 @@
+package com.cafepos.payment;
+
+import com.cafepos.common.Money;
+
+/**
+ * Outcome of a payment attempt. {@code reference} is the processor's authorization reference
+ * (null unless approved); {@code message} says why a payment was declined or timed out.
+ */
+public record PaymentResult(Status status, String idempotencyKey, String method, Money amount,
+                            String reference, String message) {
+
+    public enum Status { APPROVED, DECLINED, TIMEOUT }
+
+    public static PaymentResult approved(String key, String method, Money amount, String reference) {
+        return new PaymentResult(Status.APPROVED, key, method, amount, reference, null);
+    }
+
+    public static PaymentResult declined(String key, String method, Money amount, String message) {
+        return new PaymentResult(Status.DECLINED, key, method, amount, null, message);
+    }
+
+    public static PaymentResult timeout(String key, String method, Money amount) {
+        return new PaymentResult(Status.TIMEOUT, key, method, amount, null, "no answer from processor");
+    }
+
+    public boolean isApproved() {
+        return status == Status.APPROVED;
+    }
+}
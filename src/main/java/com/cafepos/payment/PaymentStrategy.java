@@ -1,7 +1,23 @@
 package com.cafepos.payment;
 
-import com.cafepos.domain.Order;
+import java.util.concurrent.CompletableFuture;
 
 public interface PaymentStrategy { 
-    void pay(Order order); 
-}
\ No newline at end of file
+    /** Charges {@code request.amount()}, the total worked out by the pricing step. */
+    void pay(PaymentRequest request);
+
+    /** Short label used to record and look up how an order was paid. */
+    default String type() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * Charges {@code request.amount()} without blocking the till on slow payment methods.
+     * The default runs {@link #pay(PaymentRequest)} on the calling thread and reports it as approved.
+     */
+    default CompletableFuture<PaymentResult> payAsync(PaymentRequest request) {
+        pay(request);
+        return CompletableFuture.completedFuture(
+                PaymentResult.approved(request.idempotencyKey(), type(), request.amount(), null));
+    }
+}
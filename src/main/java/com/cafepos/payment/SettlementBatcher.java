@@ -0,0 +1,157 @@
+package com.cafepos.payment;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Collects approved card and wallet payments and writes them to settlement files in one
+ * directory, one file per batch, instead of settling each payment on its own. A batch is written
+ * when it reaches {@code batchSize} payments, every {@code intervalMillis}, on {@link #flush} and
+ * on {@link #close}. Files are named {@code settlement-NNNNNN.csv} in the order they were written
+ * and hold one {@code key,method,reference,cents} row per payment; each is written under a
+ * temporary name and then renamed, so a settlement run never sees half a file.
+ */
+public final class SettlementBatcher implements AutoCloseable {
+    public static final String HEADER = "key,method,reference,cents";
+
+    private final Path dir;
+    private final int batchSize;
+    private final ScheduledExecutorService timer;
+    private final AtomicLong settled = new AtomicLong();
+    private List<PaymentResult> pending = new ArrayList<>();
+    private long nextFile;
+    private boolean closed;
+
+    public SettlementBatcher(Path dir, int batchSize, long intervalMillis) {
+        if (dir == null) throw new IllegalArgumentException("dir required");
+        if (batchSize <= 0) throw new IllegalArgumentException("batchSize must be > 0");
+        if (intervalMillis <= 0) throw new IllegalArgumentException("interval must be > 0");
+        this.dir = dir;
+        this.batchSize = batchSize;
+        try {
+            Files.createDirectories(dir);
+            try (Stream<Path> files = Files.list(dir)) {
+                nextFile = files.map(p -> p.getFileName().toString())
+                        .filter(n -> n.matches("settlement-\\d{6}\\.csv"))
+                        .mapToLong(n -> Long.parseLong(n.substring("settlement-".length(), n.length() - 4)) + 1)
+                        .max().orElse(0);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open settlement directory " + dir, e);
+        }
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "settlement");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Queues an approved payment for settlement; anything else is ignored. */
+    public void add(PaymentResult approved) {
+        if (approved == null || !approved.isApproved()) return;
+        List<PaymentResult> full = null;
+        synchronized (this) {
+            if (closed) throw new IllegalStateException("settlement batcher closed");
+            pending.add(approved);
+            if (pending.size() >= batchSize) {
+                full = pending;
+                pending = new ArrayList<>(batchSize);
+            }
+        }
+        if (full != null) write(full);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (UncheckedIOException e) {
+            // the batch was put back; the next tick tries again
+        }
+    }
+
+    /** Writes whatever is pending as a batch. */
+    public void flush() {
+        List<PaymentResult> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) return;
+            batch = pending;
+            pending = new ArrayList<>(batchSize);
+        }
+        write(batch);
+    }
+
+    /** Number of payments written to settlement files so far. */
+    public long settled() {
+        return settled.get();
+    }
+
+    @Override
+    public void close() {
+        timer.shutdown();
+        try {
+            timer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            closed = true; // before the last flush, so no add can slip in after it
+        }
+        flush();
+    }
+
+    /** Writes {@code batch} to the next file; on failure it goes back to the front of the queue. */
+    private void write(List<PaymentResult> batch) {
+        try {
+            writeFile(batch);
+        } catch (UncheckedIOException e) {
+            synchronized (this) {
+                batch.addAll(pending);
+                pending = batch;
+            }
+            throw e;
+        }
+        settled.addAndGet(batch.size());
+    }
+
+    private void writeFile(List<PaymentResult> batch) {
+        Path file;
+        synchronized (this) {
+            file = dir.resolve(String.format("settlement-%06d.csv", nextFile++));
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            w.write(HEADER);
+            w.newLine();
+            for (PaymentResult r : batch) {
+                w.write(r.idempotencyKey());
+                w.write(',');
+                w.write(r.method());
+                w.write(',');
+                w.write(r.reference());
+                w.write(',');
+                w.write(Long.toString(r.amount().asCents()));
+                w.newLine();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write settlement file " + file, e);
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not publish settlement file " + file, e);
+        }
+    }
+}
@@ -1,19 +1,36 @@
 package com.cafepos.payment;
 
-import com.cafepos.domain.Order;
-import com.cafepos.pricing.FixedRateTaxPolicy;
+import java.util.concurrent.CompletableFuture;
 
 public final class WalletPayment implements PaymentStrategy { 
     private final String walletId; 
+    private final PaymentPipeline pipeline;
     
     public WalletPayment(String walletId) {
+        this(walletId, null);
+    }
+
+    /** Wallet payment authorized through {@code pipeline}; without one it only prints. */
+    public WalletPayment(String walletId, PaymentPipeline pipeline) {
         if (walletId == null || walletId.isBlank())
             throw new IllegalArgumentException("walletId required");
         this.walletId = walletId; 
+        this.pipeline = pipeline;
+    }
+
+    @Override
+    public void pay(PaymentRequest request) {
+        System.out.println("[Wallet] Customer paid " + request.amount() + " EUR via wallet " + walletId);
     }
 
-    @Override 
-    public void pay(Order order) { 
-        System.out.println("[Wallet] Customer paid " + order.totalWithTax(new FixedRateTaxPolicy(10)) + " EUR via wallet " + walletId);
-    } 
+    @Override
+    public CompletableFuture<PaymentResult> payAsync(PaymentRequest request) {
+        if (pipeline == null) return PaymentStrategy.super.payAsync(request);
+        return pipeline.submit(new Authorization(request.idempotencyKey(), type(), walletId, request.amount()));
+    }
+
+    @Override
+    public String type() {
+        return "WALLET";
+    }
 }
\ No newline at end of file
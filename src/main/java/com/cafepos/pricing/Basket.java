@@ -0,0 +1,28 @@
+package com.cafepos.pricing;
+
+import com.cafepos.domain.LineItem;
+
+import java.time.LocalTime;
+import java.util.List;
+
+/** What {@link RuleEngine} prices: the lines plus the context promotions depend on. */
+public record Basket(List<LineItem> lines, LocalTime time, boolean loyalCustomer, String coupon) {
+    public Basket {
+        if (lines == null) throw new IllegalArgumentException("lines required");
+        if (time == null) throw new IllegalArgumentException("time required");
+        lines = List.copyOf(lines);
+        coupon = coupon == null || coupon.isBlank() ? null : coupon.toUpperCase();
+    }
+
+    public static Basket of(List<LineItem> lines, LocalTime time) {
+        return new Basket(lines, time, false, null);
+    }
+
+    public Basket withLoyalCustomer() {
+        return new Basket(lines, time, true, coupon);
+    }
+
+    public Basket withCoupon(String code) {
+        return new Basket(lines, time, loyalCustomer, code);
+    }
+}
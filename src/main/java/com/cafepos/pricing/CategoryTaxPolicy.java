@@ -0,0 +1,34 @@
+package com.cafepos.pricing;
+
+import com.cafepos.common.Money;
+
+import java.util.Map;
+
+/** Tax at a per-category rate, e.g. food and drinks taxed differently; other categories pay the default. */
+public final class CategoryTaxPolicy implements TaxPolicy {
+    private final int defaultPercent;
+    private final Map<String, Integer> percentByCategory;
+
+    public CategoryTaxPolicy(int defaultPercent, Map<String, Integer> percentByCategory) {
+        if (defaultPercent < 0) throw new IllegalArgumentException();
+        for (int p : percentByCategory.values()) if (p < 0) throw new IllegalArgumentException();
+        this.defaultPercent = defaultPercent;
+        this.percentByCategory = Map.copyOf(percentByCategory);
+    }
+
+    @Override public Money taxOn(Money amount) {
+        return amount.percent(defaultPercent);
+    }
+
+    @Override public long taxOnCents(long amountCents) {
+        return Money.percentOfCents(amountCents, defaultPercent);
+    }
+
+    @Override public long taxOnCents(String category, long amountCents) {
+        return Money.percentOfCents(amountCents, percentByCategory.getOrDefault(category, defaultPercent));
+    }
+
+    @Override public boolean variesByCategory() {
+        return true;
+    }
+}
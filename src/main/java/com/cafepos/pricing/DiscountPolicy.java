@@ -1,7 +1,18 @@
 package com.cafepos.pricing;
 
+import com.cafepos.catalog.Product;
 import com.cafepos.common.Money;
 
 public interface DiscountPolicy {
     Money discountOf(Money subtotal);
+
+    /** Cents form of {@link #discountOf} for batch pricing; override to avoid allocating. */
+    default long discountOfCents(long subtotalCents) {
+        return discountOf(Money.ofCents(subtotalCents)).asCents();
+    }
+
+    /** Whether lines of {@code product} count towards the subtotal this discount is taken from. */
+    default boolean appliesTo(Product product) {
+        return true;
+    }
 }
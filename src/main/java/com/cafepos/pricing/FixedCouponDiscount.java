@@ -7,7 +7,10 @@ public final class FixedCouponDiscount implements DiscountPolicy {
     public FixedCouponDiscount(Money amount) { this.amount = amount; }
     @Override public Money discountOf(Money subtotal) {
         // cap at subtotal
-        if (amount.asBigDecimal().compareTo(subtotal.asBigDecimal()) > 0) return subtotal;
+        if (amount.compareTo(subtotal) > 0) return subtotal;
         return amount;
     }
+    @Override public long discountOfCents(long subtotalCents) {
+        return Math.min(amount.asCents(), subtotalCents);
+    }
 }
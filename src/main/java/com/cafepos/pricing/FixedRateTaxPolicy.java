@@ -1,7 +1,6 @@
 package com.cafepos.pricing;
 
 import com.cafepos.common.Money;
-import java.math.BigDecimal;
 
 public final class FixedRateTaxPolicy implements TaxPolicy {
     private final int percent;
@@ -10,10 +9,10 @@ public final class FixedRateTaxPolicy implements TaxPolicy {
         this.percent = percent;
     }
     @Override public Money taxOn(Money amount) {
-        BigDecimal taxAmount = amount.asBigDecimal()
-            .multiply(BigDecimal.valueOf(percent))
-            .divide(BigDecimal.valueOf(100));
-        return Money.of(taxAmount);
+        return amount.percent(percent);
+    }
+    @Override public long taxOnCents(long amountCents) {
+        return Money.percentOfCents(amountCents, percent);
     }
 
     public int getPercent() {
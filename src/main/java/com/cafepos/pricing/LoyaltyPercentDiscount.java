@@ -1,15 +1,29 @@
 package com.cafepos.pricing;
 
+import com.cafepos.catalog.Product;
 import com.cafepos.common.Money;
 
+import java.util.Set;
+
 public final class LoyaltyPercentDiscount implements DiscountPolicy {
     private final int percent;
+    private final Set<String> excludedCategories;
     public LoyaltyPercentDiscount(int percent) {
+        this(percent, Set.of());
+    }
+    /** Loyalty discount that leaves products in {@code excludedCategories} at full price. */
+    public LoyaltyPercentDiscount(int percent, Set<String> excludedCategories) {
         if (percent < 0) throw new IllegalArgumentException();
         this.percent = percent;
+        this.excludedCategories = Set.copyOf(excludedCategories);
     }
     @Override public Money discountOf(Money subtotal) {
-        var d = subtotal.asBigDecimal().multiply(java.math.BigDecimal.valueOf(percent)).divide(java.math.BigDecimal.valueOf(100));
-        return Money.of(d);
+        return subtotal.percent(percent);
+    }
+    @Override public long discountOfCents(long subtotalCents) {
+        return Money.percentOfCents(subtotalCents, percent);
+    }
+    @Override public boolean appliesTo(Product product) {
+        return !excludedCategories.contains(product.category());
     }
 }
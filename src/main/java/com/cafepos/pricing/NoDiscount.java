@@ -5,4 +5,5 @@ import com.cafepos.common.Money;
 public final class NoDiscount implements DiscountPolicy {
     @Override public Money discountOf(Money subtotal) {
         return Money.zero(); }
+    @Override public long discountOfCents(long subtotalCents) { return 0; }
 }
@@ -0,0 +1,68 @@
+package com.cafepos.pricing;
+
+import com.cafepos.common.Money;
+
+import java.time.LocalTime;
+
+/**
+ * One promotion or tax rule for {@link RuleEngine}. Discounts stack in a fixed order: per-product
+ * rules first, then percentage rules on what is left, then coupons (capped at what is left);
+ * tax is charged on the discounted amount.
+ */
+public sealed interface PricingRule {
+    String name();
+
+    /** {@code percent} off while the basket time is in {@code [from, to)}; may wrap past midnight. */
+    record HappyHour(String name, LocalTime from, LocalTime to, int percent) implements PricingRule {
+        public HappyHour {
+            requireName(name);
+            if (from == null || to == null) throw new IllegalArgumentException("window required");
+            requirePercent(percent);
+        }
+    }
+
+    /** {@code percent} off for loyalty customers. */
+    record Loyalty(String name, int percent) implements PricingRule {
+        public Loyalty {
+            requireName(name);
+            requirePercent(percent);
+        }
+    }
+
+    /** A fixed amount off when the basket carries {@code code}, never more than is left to pay. */
+    record Coupon(String name, String code, Money amount) implements PricingRule {
+        public Coupon {
+            requireName(name);
+            if (code == null || code.isBlank()) throw new IllegalArgumentException("code required");
+            if (amount == null) throw new IllegalArgumentException("amount required");
+            code = code.toUpperCase();
+        }
+    }
+
+    /**
+     * Every second unit of {@code productId} is free; the cheapest units are the free ones. Units
+     * that took part in one such deal do not count towards another on the same product.
+     */
+    record Bogof(String name, String productId) implements PricingRule {
+        public Bogof {
+            requireName(name);
+            if (productId == null) throw new IllegalArgumentException("productId required");
+        }
+    }
+
+    /** Tax at {@code percent} of the discounted amount. Several tax rules add up. */
+    record TaxRate(String name, int percent) implements PricingRule {
+        public TaxRate {
+            requireName(name);
+            requirePercent(percent);
+        }
+    }
+
+    private static void requireName(String name) {
+        if (name == null || name.isBlank()) throw new IllegalArgumentException("rule name required");
+    }
+
+    private static void requirePercent(int percent) {
+        if (percent < 0 || percent > 100) throw new IllegalArgumentException("percent must be 0..100");
+    }
+}
@@ -1,24 +1,220 @@
 package com.cafepos.pricing;
 
+import com.cafepos.catalog.Product;
 import com.cafepos.common.Money;
+import com.cafepos.decorator.Priced;
+import com.cafepos.domain.LineItem;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public final class PricingService {
+    /** Batches smaller than this are priced on the calling thread by {@link #priceParallel}. */
+    public static final int PARALLEL_THRESHOLD = 8192;
+
     private final DiscountPolicy discountPolicy;
     private final TaxPolicy taxPolicy;
+    private final RuleEngine rules; // null: baskets are priced with the policies
 
     public PricingService(DiscountPolicy discountPolicy, TaxPolicy taxPolicy) {
+        this(discountPolicy, taxPolicy, null);
+    }
+
+    /** Prices baskets with {@code rules} when it is not null; see {@link #price(Basket)}. */
+    public PricingService(DiscountPolicy discountPolicy, TaxPolicy taxPolicy, RuleEngine rules) {
         this.discountPolicy = discountPolicy;
         this.taxPolicy = taxPolicy;
+        this.rules = rules;
     }
 
     public PricingResult price(Money subtotal) {
         Money discount = discountPolicy.discountOf(subtotal);
-        Money discounted = Money.of(subtotal.asBigDecimal().subtract(discount.asBigDecimal()));
-        if (discounted.asBigDecimal().signum() < 0) discounted = Money.zero();
+        Money discounted = discount.compareTo(subtotal) >= 0 ? Money.zero() : subtotal.subtract(discount);
         Money tax = taxPolicy.taxOn(discounted);
         Money total = discounted.add(tax);
         return new PricingResult(subtotal, discount, tax, total);
     }
 
+    /**
+     * Prices an order line by line. One pass over {@code items} works out each line total and
+     * groups the lines by {@link Product#category()}; the discount is taken from the lines the
+     * policy {@linkplain DiscountPolicy#appliesTo applies to} and spread over their categories in
+     * proportion, then tax is charged per category when the tax policy varies by category, or on
+     * the whole discounted amount otherwise. With the default policies the order-level figures
+     * equal {@link #price(Money)} on the order subtotal.
+     */
+    public OrderPricing price(List<LineItem> items) {
+        var lines = new ArrayList<LinePrice>(items.size());
+        var byCategory = new LinkedHashMap<String, long[]>(); // {subtotal, discountable}
+        long subtotal = 0, eligible = 0;
+        for (LineItem li : items) {
+            Product p = li.product();
+            Money unit = p instanceof Priced pr ? pr.price() : p.basePrice();
+            Money lineTotal = unit.multiply(li.quantity());
+            boolean discountable = discountPolicy.appliesTo(p);
+            long[] sums = byCategory.computeIfAbsent(p.category(), k -> new long[2]);
+            sums[0] = Math.addExact(sums[0], lineTotal.asCents());
+            subtotal = Math.addExact(subtotal, lineTotal.asCents());
+            if (discountable) {
+                sums[1] += lineTotal.asCents();
+                eligible += lineTotal.asCents();
+            }
+            lines.add(new LinePrice(li, p.category(), unit, lineTotal, discountable));
+        }
+
+        int n = byCategory.size();
+        String[] names = byCategory.keySet().toArray(new String[0]);
+        long[] subtotals = new long[n], eligibles = new long[n];
+        for (int i = 0; i < n; i++) {
+            long[] sums = byCategory.get(names[i]);
+            subtotals[i] = sums[0];
+            eligibles[i] = sums[1];
+        }
+        long discount = eligible == 0 ? 0 : Math.min(discountPolicy.discountOfCents(eligible), eligible);
+        long[] discounts = allocate(discount, eligibles, true);
+        long[] discounted = new long[n];
+        for (int i = 0; i < n; i++) discounted[i] = subtotals[i] - discounts[i];
+        long[] taxes;
+        if (taxPolicy.variesByCategory()) {
+            taxes = new long[n];
+            for (int i = 0; i < n; i++) taxes[i] = taxPolicy.taxOnCents(names[i], discounted[i]);
+        } else {
+            taxes = allocate(taxPolicy.taxOnCents(subtotal - discount), discounted, false);
+        }
+
+        var categories = new ArrayList<CategoryTotals>(n);
+        long tax = 0;
+        for (int i = 0; i < n; i++) {
+            tax += taxes[i];
+            categories.add(new CategoryTotals(names[i], Money.ofCents(subtotals[i]), Money.ofCents(discounts[i]),
+                    Money.ofCents(taxes[i]), Money.ofCents(discounted[i] + taxes[i])));
+        }
+        var totals = new PricingResult(Money.ofCents(subtotal), Money.ofCents(discount), Money.ofCents(tax),
+                Money.ofCents(subtotal - discount + tax));
+        return new OrderPricing(List.copyOf(lines), List.copyOf(categories), totals);
+    }
+
+    /**
+     * Prices a basket at checkout. With a {@link RuleEngine} its promotions and tax rules replace
+     * the discount and tax policies: the lines are priced as in {@link #price(List)}, the totals
+     * come from the engine's memoized quote and no per-category breakdown is given. Without one
+     * this is {@link #price(List)} on the basket's lines.
+     */
+    public OrderPricing price(Basket basket) {
+        if (basket == null) throw new IllegalArgumentException("basket required");
+        OrderPricing byLine = price(basket.lines());
+        if (rules == null) return byLine;
+        return new OrderPricing(byLine.lines(), List.of(), rules.price(basket).pricing());
+    }
+
+    /**
+     * Splits {@code amount} over {@code weights} in proportion, rounding down and handing the
+     * leftover cents out in order. When {@code capped}, no share exceeds its weight.
+     */
+    private static long[] allocate(long amount, long[] weights, boolean capped) {
+        long[] shares = new long[weights.length];
+        if (amount == 0 || weights.length == 0) return shares;
+        long total = 0;
+        for (long w : weights) total += w;
+        if (total == 0) {
+            shares[0] = amount;
+            return shares;
+        }
+        long left = amount;
+        for (int i = 0; i < weights.length; i++) {
+            shares[i] = Math.multiplyExact(amount, weights[i]) / total;
+            left -= shares[i];
+        }
+        for (int i = 0; left > 0; i = (i + 1) % weights.length) {
+            if (!capped || shares[i] < weights[i]) {
+                shares[i]++;
+                left--;
+            }
+        }
+        return shares;
+    }
+
+    /**
+     * Prices {@code subtotals} (in cents) in one pass, writing discount, tax and total cents to
+     * the matching slots of the output arrays. Gives the same figures as {@link #price(Money)}
+     * but allocates nothing per element, as long as the policies override their cents methods.
+     */
+    public void price(long[] subtotals, long[] discounts, long[] taxes, long[] totals) {
+        checkBatch(subtotals, discounts, taxes, totals);
+        priceRange(subtotals, discounts, taxes, totals, 0, subtotals.length);
+    }
+
+    /** As {@link #price(long[], long[], long[], long[])}, split across the common fork-join pool. */
+    public void priceParallel(long[] subtotals, long[] discounts, long[] taxes, long[] totals) {
+        checkBatch(subtotals, discounts, taxes, totals);
+        if (subtotals.length < PARALLEL_THRESHOLD) {
+            priceRange(subtotals, discounts, taxes, totals, 0, subtotals.length);
+        } else {
+            ForkJoinPool.commonPool().invoke(new BatchTask(subtotals, discounts, taxes, totals, 0, subtotals.length));
+        }
+    }
+
+    private void priceRange(long[] subtotals, long[] discounts, long[] taxes, long[] totals, int from, int to) {
+        for (int i = from; i < to; i++) {
+            long subtotal = subtotals[i];
+            if (subtotal < 0) throw new IllegalArgumentException("negative subtotal at " + i);
+            long discount = discountPolicy.discountOfCents(subtotal);
+            long discounted = discount >= subtotal ? 0 : subtotal - discount;
+            long tax = taxPolicy.taxOnCents(discounted);
+            discounts[i] = discount;
+            taxes[i] = tax;
+            totals[i] = Math.addExact(discounted, tax);
+        }
+    }
+
+    private static void checkBatch(long[] subtotals, long[] discounts, long[] taxes, long[] totals) {
+        int n = subtotals.length;
+        if (discounts.length < n || taxes.length < n || totals.length < n) {
+            throw new IllegalArgumentException("output arrays shorter than " + n + " subtotals");
+        }
+    }
+
+    @SuppressWarnings("serial") // never serialized; only run on the fork-join pool
+    private final class BatchTask extends RecursiveAction {
+        private final long[] subtotals, discounts, taxes, totals;
+        private final int from, to;
+
+        BatchTask(long[] subtotals, long[] discounts, long[] taxes, long[] totals, int from, int to) {
+            this.subtotals = subtotals;
+            this.discounts = discounts;
+            this.taxes = taxes;
+            this.totals = totals;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                priceRange(subtotals, discounts, taxes, totals, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new BatchTask(subtotals, discounts, taxes, totals, from, mid),
+                    new BatchTask(subtotals, discounts, taxes, totals, mid, to));
+        }
+    }
+
     public static record PricingResult(Money subtotal, Money discount, Money tax, Money total) {}
+
+    /** One priced line: the unit price it was charged at and its total before order-level adjustments. */
+    public static record LinePrice(LineItem item, String category, Money unitPrice, Money lineTotal,
+                                   boolean discountable) {}
+
+    public static record CategoryTotals(String category, Money subtotal, Money discount, Money tax, Money total) {}
+
+    /** Lines in order, categories in first-seen order, and the order-level totals. */
+    public static record OrderPricing(List<LinePrice> lines, List<CategoryTotals> categories, PricingResult totals) {
+        public Optional<CategoryTotals> category(String name) {
+            return categories.stream().filter(c -> c.category().equals(name)).findFirst();
+        }
+    }
 }
@@ -0,0 +1,261 @@
+package com.cafepos.pricing;
+
+import com.cafepos.catalog.Product;
+import com.cafepos.common.Money;
+import com.cafepos.decorator.Priced;
+import com.cafepos.domain.LineItem;
+import com.cafepos.pricing.PricingService.PricingResult;
+
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prices a {@link Basket} against a set of {@link PricingRule}s.
+ *
+ * {@link #compile} indexes the rules by what triggers them: product id, coupon code, loyalty,
+ * minute of the day (happy hours are expanded into a per-minute table of active rule sets) and
+ * tax. Pricing a basket only looks at the rules its products and context select, so the cost
+ * grows with the rules that apply rather than with every rule configured. Baskets are reduced
+ * to a signature (distinct products, unit prices and quantities plus the context the rules can
+ * see) and results are memoized per signature in a bounded LRU cache.
+ */
+public final class RuleEngine {
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int[] NONE = new int[0];
+
+    private final PricingRule[] rules;
+    private final Map<String, int[]> byProduct;
+    private final Map<String, int[]> byCoupon;
+    private final int[] loyalty;
+    private final int[] taxes;
+    private final short[] windowAt;
+    private final int[][] windowSets;
+
+    private final int maxEntries;
+    private final LinkedHashMap<Signature, Quote> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private RuleEngine(List<? extends PricingRule> rules, int maxEntries) {
+        if (maxEntries <= 0) throw new IllegalArgumentException("cache size must be > 0");
+        this.rules = rules.toArray(new PricingRule[0]);
+        var products = new HashMap<String, List<Integer>>();
+        var coupons = new HashMap<String, List<Integer>>();
+        var loyal = new ArrayList<Integer>();
+        var tax = new ArrayList<Integer>();
+        var windows = new ArrayList<Integer>();
+        for (int i = 0; i < this.rules.length; i++) {
+            PricingRule rule = this.rules[i];
+            if (rule instanceof PricingRule.Bogof b) products.computeIfAbsent(b.productId(), k -> new ArrayList<>()).add(i);
+            else if (rule instanceof PricingRule.Coupon c) coupons.computeIfAbsent(c.code(), k -> new ArrayList<>()).add(i);
+            else if (rule instanceof PricingRule.Loyalty) loyal.add(i);
+            else if (rule instanceof PricingRule.TaxRate) tax.add(i);
+            else if (rule instanceof PricingRule.HappyHour) windows.add(i);
+            else throw new IllegalArgumentException("rule required");
+        }
+        this.byProduct = toArrays(products);
+        this.byCoupon = toArrays(coupons);
+        this.loyalty = toArray(loyal);
+        this.taxes = toArray(tax);
+
+        // Minutes with the same active happy hours share one rule set.
+        this.windowAt = new short[MINUTES_PER_DAY];
+        var sets = new LinkedHashMap<List<Integer>, Integer>();
+        for (int m = 0; m < MINUTES_PER_DAY; m++) {
+            var active = new ArrayList<Integer>();
+            for (int i : windows) {
+                var h = (PricingRule.HappyHour) this.rules[i];
+                if (inWindow(minuteOf(h.from()), minuteOf(h.to()), m)) active.add(i);
+            }
+            windowAt[m] = (short) (int) sets.computeIfAbsent(active, k -> sets.size());
+        }
+        this.windowSets = sets.keySet().stream().map(RuleEngine::toArray).toArray(int[][]::new);
+
+        this.maxEntries = maxEntries;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<Signature, Quote> eldest) {
+                return size() > RuleEngine.this.maxEntries;
+            }
+        };
+    }
+
+    public static RuleEngine compile(List<? extends PricingRule> rules) {
+        return compile(rules, DEFAULT_CACHE_SIZE);
+    }
+
+    public static RuleEngine compile(List<? extends PricingRule> rules, int cacheSize) {
+        if (rules == null) throw new IllegalArgumentException("rules required");
+        return new RuleEngine(rules, cacheSize);
+    }
+
+    public Quote price(Basket basket) {
+        if (basket == null) throw new IllegalArgumentException("basket required");
+        Line[] lines = aggregate(basket.lines());
+        Signature sig = signature(lines, basket);
+        Quote q;
+        synchronized (cache) {
+            q = cache.get(sig);
+        }
+        if (q != null) {
+            hits.increment();
+            return q;
+        }
+        misses.increment();
+        q = evaluate(lines, sig);
+        synchronized (cache) {
+            cache.put(sig, q);
+        }
+        return q;
+    }
+
+    public CacheStats cacheStats() {
+        int size;
+        synchronized (cache) {
+            size = cache.size();
+        }
+        return new CacheStats(size, hits.sum(), misses.sum());
+    }
+
+    /** The priced basket and the names of the rules that changed it, in the order they ran. */
+    public static record Quote(PricingResult pricing, List<String> applied) {}
+
+    public static record CacheStats(int entries, long hits, long misses) {
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+
+    private Quote evaluate(Line[] lines, Signature sig) {
+        var applied = new ArrayList<String>();
+        long subtotal = 0;
+        for (Line l : lines) subtotal = Math.addExact(subtotal, Math.multiplyExact(l.unitCents, l.quantity));
+
+        long left = subtotal;
+        for (int start = 0; start < lines.length; ) {
+            int end = start;
+            long quantity = 0;
+            while (end < lines.length && lines[end].productId.equals(lines[start].productId)) {
+                quantity += lines[end++].quantity;
+            }
+            long given = 0; // free units already granted by an earlier rule on this product
+            for (int r : byProduct.getOrDefault(lines[start].productId, NONE)) {
+                long free = (quantity - 2 * given) / 2;
+                long off = Math.min(freeUnitsCents(lines, start, end, given, free), left);
+                given += free;
+                if (off > 0) {
+                    left -= off;
+                    applied.add(rules[r].name());
+                }
+            }
+            start = end;
+        }
+
+        int[] timed = windowSets[sig.window];
+        int[] loyal = sig.loyal ? loyalty : NONE;
+        for (int i = 0, j = 0; i < timed.length || j < loyal.length; ) {
+            int r = j == loyal.length || (i < timed.length && timed[i] < loyal[j]) ? timed[i++] : loyal[j++];
+            int percent = rules[r] instanceof PricingRule.HappyHour h ? h.percent() : ((PricingRule.Loyalty) rules[r]).percent();
+            long off = Money.percentOfCents(left, percent);
+            if (off > 0) {
+                left -= off;
+                applied.add(rules[r].name());
+            }
+        }
+
+        if (sig.coupon != null) {
+            for (int r : byCoupon.get(sig.coupon)) {
+                long off = Math.min(((PricingRule.Coupon) rules[r]).amount().asCents(), left);
+                if (off > 0) {
+                    left -= off;
+                    applied.add(rules[r].name());
+                }
+            }
+        }
+
+        long tax = 0;
+        for (int r : taxes) {
+            tax += Money.percentOfCents(left, ((PricingRule.TaxRate) rules[r]).percent());
+            applied.add(rules[r].name());
+        }
+        var pricing = new PricingResult(Money.ofCents(subtotal), Money.ofCents(subtotal - left),
+                Money.ofCents(tax), Money.ofCents(Math.addExact(left, tax)));
+        return new Quote(pricing, List.copyOf(applied));
+    }
+
+    /**
+     * Cost of the {@code free} cheapest units in {@code lines[start, end)}, which are sorted by unit
+     * price, after skipping the {@code given} cheapest that an earlier rule already made free.
+     */
+    private static long freeUnitsCents(Line[] lines, int start, int end, long given, long free) {
+        long cents = 0;
+        for (int i = start; i < end && free > 0; i++) {
+            long skip = Math.min(given, lines[i].quantity);
+            given -= skip;
+            long n = Math.min(free, lines[i].quantity - skip);
+            cents += n * lines[i].unitCents;
+            free -= n;
+        }
+        return cents;
+    }
+
+    /** Merges lines of the same product and unit price and sorts them by product, then price. */
+    private static Line[] aggregate(List<LineItem> items) {
+        Line[] lines = new Line[items.size()];
+        for (int i = 0; i < lines.length; i++) {
+            LineItem li = items.get(i);
+            Product p = li.product();
+            long unit = (p instanceof Priced pr ? pr.price() : p.basePrice()).asCents();
+            lines[i] = new Line(p.id(), unit, li.quantity());
+        }
+        Arrays.sort(lines);
+        int n = 0;
+        for (int i = 0; i < lines.length; i++) {
+            if (n > 0 && lines[n - 1].compareTo(lines[i]) == 0) {
+                lines[n - 1] = new Line(lines[i].productId, lines[i].unitCents, lines[n - 1].quantity + lines[i].quantity);
+            } else {
+                lines[n++] = lines[i];
+            }
+        }
+        return n == lines.length ? lines : Arrays.copyOf(lines, n);
+    }
+
+    /** Keeps only the context some rule can see, so irrelevant differences still share a result. */
+    private Signature signature(Line[] lines, Basket basket) {
+        var sb = new StringBuilder(lines.length * 16);
+        for (Line l : lines) sb.append(l.productId).append('\u0000').append(l.unitCents).append('\u0000').append(l.quantity).append('\u0001');
+        String coupon = basket.coupon() != null && byCoupon.containsKey(basket.coupon()) ? basket.coupon() : null;
+        int window = windowAt[basket.time().getHour() * 60 + basket.time().getMinute()];
+        return new Signature(sb.toString(), window, basket.loyalCustomer() && loyalty.length > 0, coupon);
+    }
+
+    private static boolean inWindow(int from, int to, int minute) {
+        if (from == to) return true;
+        return from < to ? minute >= from && minute < to : minute >= from || minute < to;
+    }
+
+    private static int minuteOf(LocalTime t) {
+        return t.getHour() * 60 + t.getMinute();
+    }
+
+    private static Map<String, int[]> toArrays(Map<String, List<Integer>> lists) {
+        var out = new HashMap<String, int[]>(lists.size() * 2);
+        lists.forEach((k, v) -> out.put(k, toArray(v)));
+        return out;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        return list.isEmpty() ? NONE : list.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private record Signature(String lines, int window, boolean loyal, String coupon) {}
+
+    private record Line(String productId, long unitCents, long quantity) implements Comparable<Line> {
+        @Override public int compareTo(Line o) {
+            int c = productId.compareTo(o.productId);
+            return c != 0 ? c : Long.compare(unitCents, o.unitCents);
+        }
+    }
+}
@@ -4,4 +4,21 @@ import com.cafepos.common.Money;
 
 public interface TaxPolicy {
     Money taxOn(Money amount);
+
+    /** Cents form of {@link #taxOn} for batch pricing; override to avoid allocating. */
+    default long taxOnCents(long amountCents) {
+        return taxOn(Money.ofCents(amountCents)).asCents();
+    }
+
+    /**
+     * Tax on the part of an order in {@code category}. Only consulted when
+     * {@link #variesByCategory()} is true; otherwise the order is taxed as one amount.
+     */
+    default long taxOnCents(String category, long amountCents) {
+        return taxOnCents(amountCents);
+    }
+
+    default boolean variesByCategory() {
+        return false;
+    }
 }
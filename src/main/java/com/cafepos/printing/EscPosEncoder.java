@@ -0,0 +1,185 @@
+package com.cafepos.printing;
+
+import com.cafepos.common.Money;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Streams ESC/POS commands and text into a reusable byte array, so a receipt is never built as
+ * a {@code String} first. Text is written as UTF-8 byte by byte; amounts and numbers are written
+ * digit by digit. The encoder tracks the current column so amounts can be right-aligned to the
+ * paper width. Not thread-safe; {@link #reset()} and reuse one per thread or printer.
+ */
+public final class EscPosEncoder {
+    public static final int DEFAULT_WIDTH = 42; // characters per line on 80 mm paper
+
+    private static final byte ESC = 0x1B, GS = 0x1D, LF = 0x0A;
+
+    public enum Align {
+        LEFT, CENTER, RIGHT
+    }
+
+    private final int width;
+    private byte[] buf;
+    private int size;
+    private int column;
+
+    public EscPosEncoder() {
+        this(DEFAULT_WIDTH);
+    }
+
+    public EscPosEncoder(int width) {
+        if (width <= 0) throw new IllegalArgumentException("width must be > 0");
+        this.width = width;
+        this.buf = new byte[1024];
+    }
+
+    /** Empties the buffer, keeping its capacity. */
+    public EscPosEncoder reset() {
+        size = 0;
+        column = 0;
+        return this;
+    }
+
+    /** ESC @: resets the printer to its default modes. */
+    public EscPosEncoder init() {
+        return command(ESC, (byte) '@');
+    }
+
+    /** ESC E n: emphasized (bold) text on or off. */
+    public EscPosEncoder bold(boolean on) {
+        return command(ESC, (byte) 'E', (byte) (on ? 1 : 0));
+    }
+
+    /** ESC a n: justification of the following lines. */
+    public EscPosEncoder align(Align align) {
+        return command(ESC, (byte) 'a', (byte) align.ordinal());
+    }
+
+    /** ESC d n: prints the buffer and feeds {@code lines} lines. */
+    public EscPosEncoder feed(int lines) {
+        column = 0;
+        return command(ESC, (byte) 'd', (byte) Math.max(0, Math.min(255, lines)));
+    }
+
+    /** GS V 1: partial cut. */
+    public EscPosEncoder cut() {
+        column = 0;
+        return command(GS, (byte) 'V', (byte) 1);
+    }
+
+    public EscPosEncoder newline() {
+        ensure(1);
+        buf[size++] = LF;
+        column = 0;
+        return this;
+    }
+
+    public EscPosEncoder text(CharSequence s) {
+        ensure(s.length() * 3);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buf[size++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[size++] = (byte) (0xC0 | c >> 6);
+                buf[size++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i)); // 4 bytes for 2 chars fits the 3-per-char estimate
+                buf[size++] = (byte) (0xF0 | cp >> 18);
+                buf[size++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                buf[size++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                buf[size++] = (byte) (0x80 | cp & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                buf[size++] = '?';
+            } else {
+                buf[size++] = (byte) (0xE0 | c >> 12);
+                buf[size++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buf[size++] = (byte) (0x80 | c & 0x3F);
+            }
+            column++;
+        }
+        return this;
+    }
+
+    public EscPosEncoder number(long n) {
+        if (n < 0) {
+            text("-");
+            if (n == Long.MIN_VALUE) return text("9223372036854775808");
+            n = -n;
+        }
+        int digits = digits(n);
+        ensure(digits);
+        for (int i = size + digits - 1; i >= size; i--) {
+            buf[i] = (byte) ('0' + n % 10);
+            n /= 10;
+        }
+        size += digits;
+        column += digits;
+        return this;
+    }
+
+    /** Writes {@code amount} as {@code 12.34}, the same digits as {@link Money#toString()}. */
+    public EscPosEncoder money(Money amount) {
+        long cents = amount.asCents();
+        number(cents / 100);
+        ensure(3);
+        long frac = cents % 100;
+        buf[size++] = '.';
+        buf[size++] = (byte) ('0' + frac / 10);
+        buf[size++] = (byte) ('0' + frac % 10);
+        column += 3;
+        return this;
+    }
+
+    /** Pads with spaces so {@code amount} (with a leading minus if {@code negative}) ends at the line width, then ends the line. */
+    public EscPosEncoder amountRight(Money amount, boolean negative) {
+        long whole = amount.asCents() / 100;
+        int len = digits(whole) + 3 + (negative ? 1 : 0);
+        int pad = Math.max(1, width - column - len);
+        ensure(pad);
+        Arrays.fill(buf, size, size + pad, (byte) ' ');
+        size += pad;
+        column += pad;
+        if (negative) text("-");
+        return money(amount).newline();
+    }
+
+    public EscPosEncoder amountRight(Money amount) {
+        return amountRight(amount, false);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** The encoded bytes, without copying; valid until the next write or {@link #reset()}. */
+    public ByteBuffer buffer() {
+        return ByteBuffer.wrap(buf, 0, size);
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, size);
+    }
+
+    private EscPosEncoder command(byte... bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buf, size, bytes.length);
+        size += bytes.length;
+        return this;
+    }
+
+    private static int digits(long n) {
+        int d = 1;
+        while (n >= 10) {
+            n /= 10;
+            d++;
+        }
+        return d;
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+    }
+}
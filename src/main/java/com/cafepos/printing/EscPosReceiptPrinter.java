@@ -0,0 +1,47 @@
+package com.cafepos.printing;
+
+import com.cafepos.pricing.PricingService.LinePrice;
+import com.cafepos.pricing.PricingService.OrderPricing;
+import com.cafepos.pricing.PricingService.PricingResult;
+
+/**
+ * Prints a priced order as native ESC/POS: centred bold header, one line per item with its total
+ * right-aligned, bold grand total, then a cut. The receipt is encoded straight into a reused
+ * {@link EscPosEncoder} buffer and handed to the device without an intermediate {@code String}.
+ */
+public final class EscPosReceiptPrinter {
+    private final PrinterDevice device;
+    private final EscPosEncoder out;
+
+    public EscPosReceiptPrinter(PrinterDevice device) {
+        this(device, EscPosEncoder.DEFAULT_WIDTH);
+    }
+
+    public EscPosReceiptPrinter(PrinterDevice device, int width) {
+        if (device == null) throw new IllegalArgumentException("device required");
+        this.device = device;
+        this.out = new EscPosEncoder(width);
+    }
+
+    public synchronized void print(long orderId, OrderPricing pricing, int taxPercent) {
+        encode(out.reset(), orderId, pricing, taxPercent);
+        device.write(out.buffer());
+    }
+
+    /** Writes the receipt layout into {@code out}. */
+    public static void encode(EscPosEncoder out, long orderId, OrderPricing pricing, int taxPercent) {
+        out.init()
+           .align(EscPosEncoder.Align.CENTER).bold(true).text("Order #").number(orderId).bold(false).newline()
+           .align(EscPosEncoder.Align.LEFT);
+        for (LinePrice line : pricing.lines()) {
+            out.text(" - ").text(line.item().product().name()).text(" x").number(line.item().quantity())
+               .amountRight(line.lineTotal());
+        }
+        PricingResult pr = pricing.totals();
+        out.text("Subtotal:").amountRight(pr.subtotal());
+        if (!pr.discount().isZero()) out.text("Discount:").amountRight(pr.discount(), true);
+        out.text("Tax (").number(taxPercent).text("%):").amountRight(pr.tax());
+        out.bold(true).text("Total:").amountRight(pr.total()).bold(false)
+           .feed(3).cut();
+    }
+}
@@ -0,0 +1,21 @@
+package com.cafepos.printing;
+
+import vendor.legacy.LegacyThermalPrinter;
+
+import java.nio.ByteBuffer;
+
+/** Raw receipt printer: takes already-encoded bytes. */
+@FunctionalInterface
+public interface PrinterDevice {
+    /** Writes the bytes between {@code payload}'s position and limit. The buffer is reused afterwards. */
+    void write(ByteBuffer payload);
+
+    /** The vendor printer only takes an exact-length array, so each write is copied once. */
+    static PrinterDevice legacy(LegacyThermalPrinter printer) {
+        return payload -> {
+            byte[] bytes = new byte[payload.remaining()];
+            payload.get(bytes);
+            printer.legacyPrint(bytes);
+        };
+    }
+}
@@ -0,0 +1,236 @@
+package com.cafepos.printing;
+
+import com.cafepos.catalog.Product;
+import com.cafepos.common.Money;
+import com.cafepos.decorator.Priced;
+import com.cafepos.domain.LineItem;
+import com.cafepos.pricing.PricingService.LinePrice;
+import com.cafepos.pricing.PricingService.OrderPricing;
+import com.cafepos.pricing.PricingService.PricingResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A text receipt layout, parsed once into literal and field segments and then rendered into a
+ * per-thread reusable buffer. Fields are written in braces:
+ * <ul>
+ *   <li>{@code {id}}, {@code {recipe}}, {@code {qty}}: the order</li>
+ *   <li>{@code {item}}, {@code {itemQty}}, {@code {lineTotal}}: one order line; a template line
+ *       using these is repeated for every line of the order</li>
+ *   <li>{@code {subtotal}}, {@code {discount}}, {@code {taxPercent}}, {@code {tax}},
+ *       {@code {total}}: the totals; a line showing {@code {discount}} is left out when there is
+ *       no discount</li>
+ *   <li>{@code {cashPaid}}, {@code {change}}: a line showing these is left out for non-cash
+ *       payments</li>
+ * </ul>
+ * Amounts are rendered with {@link Money#appendCents}, so they match {@link Money#toString()}.
+ */
+public final class ReceiptTemplate {
+
+    private enum Field {
+        ID("id"), RECIPE("recipe"), QTY("qty"),
+        ITEM("item"), ITEM_QTY("itemQty"), LINE_TOTAL("lineTotal"),
+        SUBTOTAL("subtotal"), DISCOUNT("discount"), TAX_PERCENT("taxPercent"), TAX("tax"), TOTAL("total"),
+        CASH_PAID("cashPaid"), CHANGE("change");
+
+        final String placeholder;
+
+        Field(String placeholder) {
+            this.placeholder = placeholder;
+        }
+
+        static Field of(String placeholder) {
+            for (Field f : values()) {
+                if (f.placeholder.equals(placeholder)) return f;
+            }
+            throw new IllegalArgumentException("Unknown receipt field: {" + placeholder + "}");
+        }
+
+        boolean perItem() {
+            return this == ITEM || this == ITEM_QTY || this == LINE_TOTAL;
+        }
+    }
+
+    /** One template line; {@code text[i]} is a literal where {@code fields[i]} is null. */
+    private record Line(String[] text, Field[] fields, boolean perItem, boolean needsDiscount, boolean needsCash) {}
+
+    /** What is being rendered, reused per thread and filled in before each render. */
+    private static final class Values {
+        long id;
+        String recipe;
+        int qty;
+        List<LineItem> items;
+        List<LinePrice> priced;
+        String item;
+        int itemQty;
+        long lineTotal;
+        PricingResult totals;
+        int taxPercent;
+        Money cashPaid;
+        Money change;
+    }
+
+    private static final class Scratch {
+        StringBuilder sb = new StringBuilder(256);
+        final Values values = new Values();
+    }
+
+    /** Buffers that grew past this are dropped after use rather than kept per thread. */
+    private static final int MAX_RETAINED = 16 * 1024;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final Line[] lines;
+
+    private ReceiptTemplate(Line[] lines) {
+        this.lines = lines;
+    }
+
+    /** Parses {@code template}; lines are separated by {@code \n}. */
+    public static ReceiptTemplate compile(String template) {
+        if (template == null) throw new IllegalArgumentException("template required");
+        String[] rows = template.split("\n", -1);
+        Line[] lines = new Line[rows.length];
+        for (int r = 0; r < rows.length; r++) lines[r] = compileLine(rows[r]);
+        return new ReceiptTemplate(lines);
+    }
+
+    private static Line compileLine(String row) {
+        var text = new ArrayList<String>();
+        var fields = new ArrayList<Field>();
+        boolean perItem = false, needsDiscount = false, needsCash = false;
+        int i = 0;
+        while (i < row.length()) {
+            int open = row.indexOf('{', i);
+            if (open < 0) open = row.length();
+            if (open > i) {
+                text.add(row.substring(i, open));
+                fields.add(null);
+            }
+            if (open == row.length()) break;
+            int close = row.indexOf('}', open);
+            if (close < 0) throw new IllegalArgumentException("Unclosed field in receipt template: " + row);
+            Field f = Field.of(row.substring(open + 1, close));
+            perItem |= f.perItem();
+            needsDiscount |= f == Field.DISCOUNT;
+            needsCash |= f == Field.CASH_PAID || f == Field.CHANGE;
+            text.add(null);
+            fields.add(f);
+            i = close + 1;
+        }
+        return new Line(text.toArray(new String[0]), fields.toArray(new Field[0]), perItem, needsDiscount, needsCash);
+    }
+
+    /** Renders an order whose line totals still have to be worked out from the items. */
+    public String render(long id, List<LineItem> items, PricingResult totals, int taxPercent) {
+        Scratch s = SCRATCH.get();
+        Values v = s.values;
+        v.id = id;
+        v.items = items;
+        v.totals = totals;
+        v.taxPercent = taxPercent;
+        return render(s);
+    }
+
+    /** Renders a line-priced order, reusing its line totals. */
+    public String render(long id, OrderPricing pricing, int taxPercent) {
+        Scratch s = SCRATCH.get();
+        Values v = s.values;
+        v.id = id;
+        v.priced = pricing.lines();
+        v.totals = pricing.totals();
+        v.taxPercent = taxPercent;
+        return render(s);
+    }
+
+    /** Renders a single-recipe order; {@code cashPaid} and {@code change} may be null. */
+    public String render(String recipe, int qty, PricingResult totals, int taxPercent, Money cashPaid, Money change) {
+        Scratch s = SCRATCH.get();
+        Values v = s.values;
+        v.recipe = recipe;
+        v.qty = qty;
+        v.totals = totals;
+        v.taxPercent = taxPercent;
+        v.cashPaid = cashPaid;
+        v.change = change;
+        return render(s);
+    }
+
+    private String render(Scratch s) {
+        Values v = s.values;
+        StringBuilder sb = s.sb;
+        sb.setLength(0);
+        try {
+            boolean first = true;
+            for (Line line : lines) {
+                if (line.needsDiscount && (v.totals == null || v.totals.discount().isZero())) continue;
+                if (line.needsCash && (v.cashPaid == null || v.change == null)) continue;
+                if (!line.perItem) {
+                    if (!first) sb.append('\n');
+                    write(sb, line, v);
+                    first = false;
+                } else if (v.priced != null) {
+                    for (int i = 0, n = v.priced.size(); i < n; i++) {
+                        LinePrice p = v.priced.get(i);
+                        v.item = p.item().product().name();
+                        v.itemQty = p.item().quantity();
+                        v.lineTotal = p.lineTotal().asCents();
+                        if (!first) sb.append('\n');
+                        write(sb, line, v);
+                        first = false;
+                    }
+                } else if (v.items != null) {
+                    for (int i = 0, n = v.items.size(); i < n; i++) {
+                        LineItem li = v.items.get(i);
+                        Product product = li.product();
+                        Money unit = product instanceof Priced p ? p.price() : product.basePrice();
+                        v.item = product.name();
+                        v.itemQty = li.quantity();
+                        v.lineTotal = Math.multiplyExact(unit.asCents(), (long) li.quantity());
+                        if (!first) sb.append('\n');
+                        write(sb, line, v);
+                        first = false;
+                    }
+                }
+            }
+            return sb.toString();
+        } finally {
+            v.recipe = null;
+            v.items = null;
+            v.priced = null;
+            v.item = null;
+            v.totals = null;
+            v.cashPaid = null;
+            v.change = null;
+            if (sb.capacity() > MAX_RETAINED) s.sb = new StringBuilder(256);
+        }
+    }
+
+    private static void write(StringBuilder sb, Line line, Values v) {
+        String[] text = line.text;
+        Field[] fields = line.fields;
+        for (int i = 0; i < fields.length; i++) {
+            Field f = fields[i];
+            if (f == null) {
+                sb.append(text[i]);
+                continue;
+            }
+            switch (f) {
+                case ID -> sb.append(v.id);
+                case RECIPE -> sb.append(v.recipe);
+                case QTY -> sb.append(v.qty);
+                case ITEM -> sb.append(v.item);
+                case ITEM_QTY -> sb.append(v.itemQty);
+                case LINE_TOTAL -> Money.appendCents(sb, v.lineTotal);
+                case SUBTOTAL -> Money.appendCents(sb, v.totals.subtotal().asCents());
+                case DISCOUNT -> Money.appendCents(sb, v.totals.discount().asCents());
+                case TAX_PERCENT -> sb.append(v.taxPercent);
+                case TAX -> Money.appendCents(sb, v.totals.tax().asCents());
+                case TOTAL -> Money.appendCents(sb, v.totals.total().asCents());
+                case CASH_PAID -> Money.appendCents(sb, v.cashPaid.asCents());
+                case CHANGE -> Money.appendCents(sb, v.change.asCents());
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.cafepos.printing;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * {@link Printer} that queues receipts and prints them from a writer thread, so checkout does not
+ * wait for the device. Receipts that are queued together are UTF-8 encoded back to back, each
+ * followed by {@link #RECEIPT_END}, into one pooled direct buffer and sent in a single device
+ * write. The queue is bounded: when the printer falls behind, {@link #printReceipt} blocks until
+ * there is room. {@link #stats()} reports queue depth and enqueue-to-printed latency.
+ *
+ * Every receipt accepted before {@link #close} returns is printed: callers enqueue under a shared
+ * lock that {@code close} takes exclusively before queueing the stop marker, so nothing can land
+ * behind it.
+ */
+public final class SpoolingPrinter implements Printer, AutoCloseable {
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+    public static final int DEFAULT_BUFFER_BYTES = 16 * 1024;
+    /** Line feed then ESC/POS partial cut (GS V 1), so coalesced receipts come out separately. */
+    static final byte[] RECEIPT_END = {'\n', 0x1D, 'V', 1};
+
+    private record Job(String text, long enqueuedNanos) {}
+
+    private static final Job STOP = new Job("", 0);
+
+    private final PrinterDevice device;
+    private final BlockingQueue<Job> queue;
+    private final int bufferBytes;
+    private final ArrayDeque<ByteBuffer> pool = new ArrayDeque<>(); // writer thread only
+    // replace like String.getBytes does, so a lone surrogate cannot cut a receipt short
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final Thread writer;
+    private final ReentrantReadWriteLock closing = new ReentrantReadWriteLock();
+    private boolean closed; // guarded by closing
+
+    private final AtomicLong printed = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong lastLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final Object idle = new Object();
+    private long accepted; // guarded by idle
+    private long done;     // guarded by idle
+
+    public SpoolingPrinter(PrinterDevice device) {
+        this(device, DEFAULT_QUEUE_CAPACITY, DEFAULT_BUFFER_BYTES);
+    }
+
+    public SpoolingPrinter(PrinterDevice device, int queueCapacity, int bufferBytes) {
+        if (device == null) throw new IllegalArgumentException("device required");
+        if (queueCapacity <= 0) throw new IllegalArgumentException("queueCapacity must be > 0");
+        if (bufferBytes < 64) throw new IllegalArgumentException("bufferBytes must be >= 64");
+        this.device = device;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.bufferBytes = bufferBytes;
+        this.writer = new Thread(this::run, "receipt-spooler");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** Queues the receipt, waiting for room if the printer is behind. */
+    @Override
+    public void printReceipt(String receiptText) {
+        if (receiptText == null) throw new IllegalArgumentException("receipt required");
+        closing.readLock().lock();
+        try {
+            if (closed) throw new IllegalStateException("spooler closed");
+            synchronized (idle) {
+                accepted++;
+            }
+            queue.put(new Job(receiptText, System.nanoTime()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finished(1);
+            throw new IllegalStateException("interrupted while waiting for the printer", e);
+        } finally {
+            closing.readLock().unlock();
+        }
+    }
+
+    /** Waits until every receipt queued so far has been written. Returns false on timeout. */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (idle) {
+            long target = accepted;
+            while (done < target) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) return false;
+                TimeUnit.NANOSECONDS.timedWait(idle, left);
+            }
+            return true;
+        }
+    }
+
+    /** Prints what is queued, then stops the writer thread. */
+    @Override
+    public void close() {
+        closing.writeLock().lock(); // waits for callers still queueing; the writer keeps draining
+        try {
+            if (closed) return;
+            closed = true;
+        } finally {
+            closing.writeLock().unlock();
+        }
+        try {
+            queue.put(STOP);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(queue.size(), printed.get(), writes.get(), failed.get(),
+                lastLatencyNanos.get(), maxLatencyNanos.get());
+    }
+
+    /** Receipts waiting, printed and failed; device writes; enqueue-to-printed latency. */
+    public static record Stats(int queueDepth, long printed, long writes, long failed,
+                               long lastLatencyNanos, long maxLatencyNanos) {}
+
+    private void run() {
+        List<Job> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+            boolean stop = batch.remove(STOP);
+            if (!batch.isEmpty()) print(batch);
+            batch.clear();
+            if (stop) return;
+        }
+    }
+
+    /** Encodes the batch into as few buffers as it fits in and writes each one. */
+    private void print(List<Job> batch) {
+        ByteBuffer buf = acquire();
+        try {
+            int first = 0; // first job held in buf
+            for (int i = 0; i < batch.size(); i++) {
+                String text = batch.get(i).text;
+                if (encode(text, buf)) continue;
+                if (i > first) { // full: send what it holds and retry on an empty buffer
+                    send(buf, batch.subList(first, i));
+                    buf.clear();
+                    first = i;
+                    if (encode(text, buf)) continue;
+                }
+                // larger than a pooled buffer on its own
+                byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                send(ByteBuffer.allocate(bytes.length + RECEIPT_END.length).put(bytes).put(RECEIPT_END),
+                        batch.subList(i, i + 1));
+                first = i + 1;
+            }
+            if (first < batch.size()) send(buf, batch.subList(first, batch.size()));
+        } finally {
+            release(buf);
+        }
+    }
+
+    /** Appends {@code text} and the receipt terminator, or leaves the buffer as it was and returns false if they do not fit. */
+    private boolean encode(String text, ByteBuffer buf) {
+        int start = buf.position();
+        encoder.reset();
+        CharBuffer in = CharBuffer.wrap(text);
+        CoderResult r = encoder.encode(in, buf, true);
+        if (!r.isOverflow()) r = encoder.flush(buf);
+        if (r.isOverflow() || buf.remaining() < RECEIPT_END.length) {
+            buf.position(start);
+            return false;
+        }
+        buf.put(RECEIPT_END);
+        return true;
+    }
+
+    private void send(ByteBuffer buf, List<Job> jobs) {
+        buf.flip();
+        try {
+            device.write(buf);
+            writes.incrementAndGet();
+            printed.addAndGet(jobs.size());
+            long now = System.nanoTime();
+            for (Job j : jobs) {
+                long lag = now - j.enqueuedNanos;
+                lastLatencyNanos.set(lag);
+                maxLatencyNanos.accumulateAndGet(lag, Math::max);
+            }
+        } catch (RuntimeException e) {
+            failed.addAndGet(jobs.size()); // keep spooling; the device may recover
+        } finally {
+            finished(jobs.size());
+        }
+    }
+
+    private void finished(int n) {
+        synchronized (idle) {
+            done += n;
+            idle.notifyAll();
+        }
+    }
+
+    private ByteBuffer acquire() {
+        ByteBuffer buf = pool.poll();
+        return buf != null ? buf.clear() : ByteBuffer.allocateDirect(bufferBytes);
+    }
+
+    private void release(ByteBuffer buf) {
+        pool.push(buf);
+    }
+}
@@ -42,7 +42,7 @@ public class OrderManagerGod {
         if (paymentType != null) {
             Order order = new Order(1);
             order.addItem(new LineItem(product, qty));
-            paymentStrategy.pay(order);
+            paymentStrategy.pay(new PaymentRequest(order, total));
         }
         PricingService.PricingResult pricingResult = new PricingService.PricingResult(subtotal, discount, tax, total);
         String out = printer.format(recipe, qty, pricingResult, ((FixedRateTaxPolicy)taxPolicy).getPercent());
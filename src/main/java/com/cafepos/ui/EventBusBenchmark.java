@@ -0,0 +1,81 @@
+package com.cafepos.ui;
+
+import com.cafepos.app.events.EventBus;
+import com.cafepos.app.events.OrderCreated;
+import com.cafepos.app.events.OrderEvent;
+import com.cafepos.app.events.OrderPaid;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Rough throughput comparison of the ring-buffer {@link EventBus} against the previous bus, a
+ * {@code HashMap} of handler lists run inline on the emitting thread (single producer only, since
+ * it was not thread-safe). Each event has two handlers. The ring bus is timed from the first emit
+ * until {@link EventBus#flush} returns, so its handlers have run too. Run with
+ * {@code java com.cafepos.ui.EventBusBenchmark [events] [producers]}.
+ */
+public final class EventBusBenchmark {
+    public static void main(String[] args) throws InterruptedException {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int producers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        Object[] payload = new Object[1024];
+        for (int i = 0; i < payload.length; i++) payload[i] = i % 4 == 0 ? new OrderPaid(i) : new OrderCreated(i);
+        for (int round = 0; round < 3; round++) { // the first rounds are warm-up
+            long[] handled = new long[1];
+            var legacy = new LegacyBus();
+            legacy.on(OrderCreated.class, e -> handled[0]++);
+            legacy.on(OrderPaid.class, e -> handled[0]++);
+            legacy.on(OrderCreated.class, e -> handled[0] += e.orderId() & 1);
+            legacy.on(OrderPaid.class, e -> handled[0] += e.orderId() & 1);
+            long t0 = System.nanoTime();
+            for (int i = 0; i < events; i++) legacy.emit(payload[i & 1023]);
+            long t1 = System.nanoTime();
+
+            long single = ring(events, 1, payload);
+            long multi = ring(events, producers, payload);
+            System.out.printf("round %d: HashMap inline %.1f M events/s, ring 1 producer %.1f M events/s, "
+                            + "ring %d producers %.1f M events/s (%d)%n",
+                    round, events * 1e3 / (t1 - t0), events * 1e3 / single, producers, events * 1e3 / multi, handled[0]);
+        }
+    }
+
+    /** Nanoseconds for {@code producers} threads to emit {@code events} in total and have them all handled. */
+    private static long ring(int events, int producers, Object[] payload) throws InterruptedException {
+        long[] handled = new long[1]; // only the consumer thread writes it
+        try (var bus = new EventBus(EventBus.DEFAULT_CAPACITY)) {
+            bus.on(OrderEvent.class, e -> handled[0]++);
+            bus.on(Object.class, e -> handled[0] += e.hashCode() & 1);
+            List<Thread> threads = new ArrayList<>();
+            int each = events / producers;
+            for (int p = 0; p < producers; p++) {
+                threads.add(new Thread(() -> {
+                    for (int i = 0; i < each; i++) bus.emit(payload[i & 1023]);
+                }));
+            }
+            long t0 = System.nanoTime();
+            for (Thread t : threads) t.start();
+            for (Thread t : threads) t.join();
+            bus.flush();
+            return System.nanoTime() - t0;
+        }
+    }
+
+    /** The previous bus: exact-class lookup in a HashMap, handlers run by the emitter. */
+    private static final class LegacyBus {
+        private final Map<Class<?>, List<Consumer<?>>> handlers = new HashMap<>();
+
+        <T> void on(Class<T> type, Consumer<T> h) {
+            handlers.computeIfAbsent(type, k -> new ArrayList<>()).add(h);
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> void emit(T event) {
+            var list = handlers.getOrDefault(event.getClass(), List.of());
+            for (var h : list) ((Consumer<T>) h).accept(event);
+        }
+    }
+}
@@ -4,16 +4,18 @@ import com.cafepos.infra.Wiring;
 
 public final class EventWiringDemo {
     public static void main(String[] args) {
-        var bus = new EventBus();
-        var comp = Wiring.createDefault();
-        var controller = new OrderController(comp.repo(),
-                comp.checkout());
-        bus.on(OrderCreated.class, e -> System.out.println("[UI] order created: " + e.orderId()));
-        bus.on(OrderPaid.class, e -> System.out.println("[UI] order paid: " + e.orderId()));
-        long id = 4201L;
-        controller.createOrder(id);
-        bus.emit(new OrderCreated(id));
-        // after a payment in your real flow:
-        bus.emit(new OrderPaid(id));
+        try (var bus = new EventBus()) {
+            var comp = Wiring.createDefault();
+            var controller = new OrderController(comp.repo(),
+                    comp.checkout());
+            bus.on(OrderCreated.class, e -> System.out.println("[UI] order created: " + e.orderId()));
+            bus.on(OrderPaid.class, e -> System.out.println("[UI] order paid: " + e.orderId()));
+            bus.on(OrderEvent.class, e -> System.out.println("[Audit] " + e));
+            long id = 4201L;
+            controller.createOrder(id);
+            bus.emit(new OrderCreated(id));
+            // after a payment in your real flow:
+            bus.emit(new OrderPaid(id));
+        } // close() delivers the events before the demo exits
     } 
-}
\ No newline at end of file
+}
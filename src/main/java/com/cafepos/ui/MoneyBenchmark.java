@@ -0,0 +1,90 @@
+package com.cafepos.ui;
+
+import com.cafepos.common.Money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Rough comparison of long-cents {@link Money} against the previous {@code BigDecimal}-backed
+ * version on a till-like workload (line totals, subtotal, 5% discount, 10% tax), plus the hit
+ * rate of Money's shared instance table. Run with
+ * {@code java com.cafepos.ui.MoneyBenchmark [iterations]}.
+ */
+public final class MoneyBenchmark {
+    private static final double[] PRICES = {2.50, 3.20, 3.00, 0.80, 0.50, 4.10, 12.75};
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        for (int i = 0; i < 100; i++) {
+            if (legacy(i).asCents() != cents(i)) {
+                throw new IllegalStateException("long-cents total differs from the BigDecimal total for order " + i);
+            }
+        }
+        for (int round = 0; round < 3; round++) { // the first rounds are warm-up
+            Money.resetCacheStats();
+            long sink = 0;
+            long t0 = System.nanoTime();
+            for (int i = 0; i < iterations; i++) sink += legacy(i).asCents();
+            long t1 = System.nanoTime();
+            for (int i = 0; i < iterations; i++) sink += cents(i);
+            long t2 = System.nanoTime();
+            var stats = Money.cacheStats();
+            System.out.printf("round %d: BigDecimal %d ns/order, long cents %d ns/order, cache hit rate %.1f%% (%d)%n",
+                    round, (t1 - t0) / iterations, (t2 - t1) / iterations, 100 * stats.hitRate(), sink);
+        }
+    }
+
+    /** An order of three lines priced with {@link Money}. */
+    private static long cents(int i) {
+        Money subtotal = Money.zero();
+        for (int l = 0; l < 3; l++) {
+            subtotal = subtotal.add(Money.of(PRICES[(i + l) % PRICES.length]).multiply(1 + (i + l) % 3));
+        }
+        Money discounted = subtotal.subtract(subtotal.percent(5));
+        return discounted.add(discounted.percent(10)).asCents();
+    }
+
+    /** The same order priced the way the BigDecimal-backed Money did it. */
+    private static LegacyMoney legacy(int i) {
+        LegacyMoney subtotal = LegacyMoney.ZERO;
+        for (int l = 0; l < 3; l++) {
+            subtotal = subtotal.add(LegacyMoney.of(PRICES[(i + l) % PRICES.length]).multiply(1 + (i + l) % 3));
+        }
+        LegacyMoney discounted = subtotal.subtract(subtotal.percent(5));
+        return discounted.add(discounted.percent(10));
+    }
+
+    /** The previous Money: a BigDecimal rescaled to two places on every operation. */
+    private record LegacyMoney(BigDecimal amount) {
+        static final LegacyMoney ZERO = new LegacyMoney(BigDecimal.ZERO);
+
+        LegacyMoney {
+            amount = amount.setScale(2, RoundingMode.HALF_UP);
+        }
+
+        static LegacyMoney of(double value) {
+            return new LegacyMoney(BigDecimal.valueOf(value));
+        }
+
+        LegacyMoney add(LegacyMoney o) {
+            return new LegacyMoney(amount.add(o.amount));
+        }
+
+        LegacyMoney subtract(LegacyMoney o) {
+            return new LegacyMoney(amount.subtract(o.amount));
+        }
+
+        LegacyMoney multiply(int qty) {
+            return new LegacyMoney(amount.multiply(BigDecimal.valueOf(qty)));
+        }
+
+        LegacyMoney percent(int p) {
+            return new LegacyMoney(amount.multiply(BigDecimal.valueOf(p)).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP));
+        }
+
+        long asCents() {
+            return amount.movePointRight(2).longValueExact();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.cafepos.ui;
+
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.common.Money;
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rough contention test of {@link Order}'s copy-on-write lines against the previous
+ * {@code ArrayList} that {@code items()} copied on every call (locked here so it is at least
+ * safe). Kitchen-screen style readers call {@code items()} three times and {@code subtotal()} per
+ * event while one till thread keeps adding and removing lines. Run with
+ * {@code java com.cafepos.ui.OrderContentionBenchmark [millis] [maxReaders]}.
+ */
+public final class OrderContentionBenchmark {
+    private static final LineItem LINE = new LineItem(new SimpleProduct("P-LAT", "Latte", Money.of(3.20)), 1);
+
+    public static void main(String[] args) throws InterruptedException {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 500;
+        int maxReaders = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        for (int round = 0; round < 2; round++) { // the first round is warm-up
+            for (int readers = 1; readers <= maxReaders; readers *= 2) {
+                long copying = run(new CopyingOrder(), readers, millis);
+                long cow = run(new CurrentOrder(), readers, millis);
+                System.out.printf("round %d, %d readers: copying %d reads/ms, copy-on-write %d reads/ms%n",
+                        round, readers, copying / millis, cow / millis);
+            }
+        }
+    }
+
+    private interface Lines {
+        void add();
+        void removeLast();
+        List<LineItem> items();
+        long subtotalCents();
+    }
+
+    private static long run(Lines order, int readers, long millis) throws InterruptedException {
+        for (int i = 0; i < 20; i++) order.add();
+        AtomicBoolean stop = new AtomicBoolean();
+        LongAdder reads = new LongAdder();
+        List<Thread> threads = new ArrayList<>();
+        for (int r = 0; r < readers; r++) {
+            threads.add(new Thread(() -> {
+                long n = 0, sink = 0;
+                while (!stop.get()) {
+                    sink += order.items().size() + order.items().size() + order.items().size();
+                    sink += order.subtotalCents();
+                    n++;
+                }
+                reads.add(n + (sink == 42 ? 1 : 0));
+            }));
+        }
+        threads.add(new Thread(() -> {
+            while (!stop.get()) {
+                order.add();
+                order.removeLast();
+            }
+        }));
+        for (Thread t : threads) t.start();
+        Thread.sleep(millis);
+        stop.set(true);
+        for (Thread t : threads) t.join();
+        return reads.sum();
+    }
+
+    private static final class CurrentOrder implements Lines {
+        private final Order order = new Order(1);
+
+        @Override public void add() { order.addItem(LINE); }
+        @Override public void removeLast() { order.removeLastItem(); }
+        @Override public List<LineItem> items() { return order.items(); }
+        @Override public long subtotalCents() { return order.subtotal().asCents(); }
+    }
+
+    /** The previous layout: a plain list, copied by every items() call and summed by subtotal(). */
+    private static final class CopyingOrder implements Lines {
+        private final List<LineItem> lines = new ArrayList<>();
+
+        @Override public synchronized void add() { lines.add(LINE); }
+        @Override public synchronized void removeLast() { lines.remove(lines.size() - 1); }
+        @Override public synchronized List<LineItem> items() { return new ArrayList<>(lines); }
+        @Override public synchronized long subtotalCents() {
+            long sum = 0;
+            for (LineItem li : lines) sum += li.lineTotal().asCents();
+            return sum;
+        }
+    }
+}
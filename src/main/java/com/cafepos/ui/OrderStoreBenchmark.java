@@ -0,0 +1,89 @@
+package com.cafepos.ui;
+
+import com.cafepos.domain.Order;
+import com.cafepos.infra.InMemoryOrderRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rough scaling test of {@link InMemoryOrderRepository}'s sharded primitive-key store against the
+ * previous {@code HashMap<Long, Order>} (synchronized here, since it was not thread-safe) on a mix
+ * of 90% {@code findById} and 10% {@code save} over 100k orders. Run with
+ * {@code java com.cafepos.ui.OrderStoreBenchmark [millis] [maxThreads]}.
+ */
+public final class OrderStoreBenchmark {
+    private static final int ORDERS = 100_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 500;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors() * 2;
+        Order[] orders = new Order[ORDERS];
+        for (int i = 0; i < ORDERS; i++) orders[i] = new Order(i + 1);
+        System.out.println(Runtime.getRuntime().availableProcessors() + " CPUs");
+        for (int round = 0; round < 2; round++) { // the first round is warm-up
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                var sharded = new InMemoryOrderRepository();
+                var boxed = new BoxedStore();
+                for (Order o : orders) {
+                    sharded.save(o);
+                    boxed.save(o);
+                }
+                long b = run(threads, millis, orders, boxed::save, id -> boxed.find(id) != null);
+                long s = run(threads, millis, orders, sharded::save, id -> sharded.findById(id).isPresent());
+                System.out.printf("round %d, %d threads: HashMap<Long> %d ops/ms, sharded %d ops/ms%n",
+                        round, threads, b / millis, s / millis);
+            }
+        }
+    }
+
+    private interface Find {
+        boolean find(long id);
+    }
+
+    private interface Save {
+        void save(Order order);
+    }
+
+    private static long run(int threads, long millis, Order[] orders, Save save, Find find) throws InterruptedException {
+        AtomicBoolean stop = new AtomicBoolean();
+        LongAdder ops = new LongAdder();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(new Thread(() -> {
+                var random = ThreadLocalRandom.current();
+                long n = 0, found = 0;
+                while (!stop.get()) {
+                    int i = random.nextInt(ORDERS);
+                    if (random.nextInt(10) == 0) save.save(orders[i]);
+                    else if (find.find(i + 1)) found++;
+                    n++;
+                }
+                ops.add(n + (found < 0 ? 1 : 0));
+            }));
+        }
+        for (Thread t : workers) t.start();
+        Thread.sleep(millis);
+        stop.set(true);
+        for (Thread t : workers) t.join();
+        return ops.sum();
+    }
+
+    /** The previous store: a boxed-key HashMap, with a lock added so it is safe to share. */
+    private static final class BoxedStore {
+        private final Map<Long, Order> orders = new HashMap<>();
+
+        synchronized void save(Order order) {
+            orders.put(order.id(), order);
+        }
+
+        synchronized Order find(long id) {
+            return orders.get(id);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.cafepos.ui;
+import com.cafepos.app.ReceiptFormatter;
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.common.Money;
+import com.cafepos.domain.LineItem;
+import com.cafepos.pricing.FixedRateTaxPolicy;
+import com.cafepos.pricing.LoyaltyPercentDiscount;
+import com.cafepos.pricing.PricingService;
+import com.cafepos.pricing.PricingService.PricingResult;
+
+import java.util.List;
+
+/**
+ * Rough comparison of the compiled receipt template against the previous per-call
+ * {@code StringBuilder} + {@code String.format("%.2f")} formatting. Run with
+ * {@code java com.cafepos.ui.ReceiptBenchmark [iterations]}.
+ */
+public final class ReceiptBenchmark {
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        var items = List.of(
+                new LineItem(new SimpleProduct("P-ESP", "Espresso", Money.of(2.50)), 2),
+                new LineItem(new SimpleProduct("P-LAT", "Latte", Money.of(3.20)), 1),
+                new LineItem(new SimpleProduct("P-CAP", "Cappuccino", Money.of(3.00)), 3));
+        var pricing = new PricingService(new LoyaltyPercentDiscount(5), new FixedRateTaxPolicy(10));
+        PricingResult pr = pricing.price(items.stream().map(LineItem::lineTotal).reduce(Money.zero(), Money::add));
+        var formatter = new ReceiptFormatter();
+
+        if (!legacy(1, items, pr, 10).equals(formatter.format(1, items, pr, 10))) {
+            throw new IllegalStateException("template output differs from the legacy formatter");
+        }
+        for (int round = 0; round < 3; round++) { // the first rounds are warm-up
+            long sink = 0;
+            long t0 = System.nanoTime();
+            for (int i = 0; i < iterations; i++) sink += legacy(i, items, pr, 10).length();
+            long t1 = System.nanoTime();
+            for (int i = 0; i < iterations; i++) sink += formatter.format(i, items, pr, 10).length();
+            long t2 = System.nanoTime();
+            System.out.printf("round %d: legacy %d ns/receipt, template %d ns/receipt (%d)%n",
+                    round, (t1 - t0) / iterations, (t2 - t1) / iterations, sink);
+        }
+    }
+
+    /** The formatting the template replaced, kept as the baseline. */
+    private static String legacy(long id, List<LineItem> items, PricingResult pr, int taxPercent) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Order #").append(id).append("\n");
+        for (LineItem li : items) {
+            sb.append(" - ").append(li.product().name()).append(" x").append(li.quantity())
+              .append(" = ").append(format(li.lineTotal())).append("\n");
+        }
+        sb.append("Subtotal: ").append(format(pr.subtotal())).append("\n");
+        if (!pr.discount().isZero()) {
+            sb.append("Discount: -").append(format(pr.discount())).append("\n");
+        }
+        sb.append("Tax (").append(taxPercent).append("%): ").append(format(pr.tax())).append("\n");
+        sb.append("Total: ").append(format(pr.total()));
+        return sb.toString();
+    }
+
+    private static String format(Money m) {
+        return String.format("%.2f", m.asBigDecimal());
+    }
+}
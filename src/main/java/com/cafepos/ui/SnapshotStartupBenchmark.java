@@ -0,0 +1,61 @@
+package com.cafepos.ui;
+
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.common.Money;
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+import com.cafepos.infra.InMemoryOrderRepository;
+import com.cafepos.infra.OrderSnapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rough measurement of warm-start time against history size: a lazy start (map the snapshot and
+ * serve the first order) next to decoding every order up front, which is what startup cost before
+ * snapshots were mapped. Run with {@code java com.cafepos.ui.SnapshotStartupBenchmark [maxOrders]}.
+ */
+public final class SnapshotStartupBenchmark {
+    public static void main(String[] args) throws IOException {
+        int maxOrders = args.length > 0 ? Integer.parseInt(args[0]) : 300_000;
+        Path dir = Files.createTempDirectory("snapshot-bench");
+        List<Integer> sizes = new ArrayList<>();
+        for (int n = 10_000; n < maxOrders; n *= 3) sizes.add(n);
+        sizes.add(maxOrders);
+        for (int round = 0; round < 2; round++) { // the first round is warm-up
+            for (int n : sizes) {
+                Path file = dir.resolve("orders-" + n + ".snap");
+                if (!Files.exists(file)) write(n, file);
+                long t0 = System.nanoTime();
+                var warm = new InMemoryOrderRepository(OrderSnapshot.open(file));
+                long sink = warm.findById(n / 2).orElseThrow().subtotal().asCents();
+                long t1 = System.nanoTime();
+                var snapshot = OrderSnapshot.open(file);
+                for (int i = 0; i < snapshot.size(); i++) sink += snapshot.load(snapshot.idAt(i)).orElseThrow().items().size();
+                long t2 = System.nanoTime();
+                System.out.printf("round %d, %d orders (%d KB): lazy start %.2f ms, eager decode %.1f ms (%d)%n",
+                        round, n, Files.size(file) / 1024, (t1 - t0) / 1e6, (t2 - t1) / 1e6, sink);
+            }
+        }
+        try (var files = Files.list(dir)) {
+            for (Path p : files.toList()) Files.delete(p);
+        }
+        Files.delete(dir);
+    }
+
+    private static void write(int n, Path file) {
+        var repo = new InMemoryOrderRepository();
+        var latte = new SimpleProduct("P-LAT", "Latte", Money.of(3.20));
+        var espresso = new SimpleProduct("P-ESP", "Espresso", Money.of(2.50));
+        for (long id = 1; id <= n; id++) {
+            var order = new Order(id);
+            order.addItem(new LineItem(latte, 1));
+            order.addItem(new LineItem(espresso, 2));
+            repo.save(order);
+        }
+        repo.writeSnapshot(file);
+    }
+}
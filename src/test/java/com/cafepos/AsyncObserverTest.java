@@ -0,0 +1,149 @@
+package com.cafepos;
+
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.common.Money;
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+import com.cafepos.observers.AsyncObserver;
+import com.cafepos.observers.AsyncObserver.Overflow;
+import com.cafepos.observers.OrderObserver;
+import com.cafepos.observers.OrderUpdate;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncObserverTest {
+
+    /** Records events; blocks delivery until released so the queue can be filled. */
+    private static final class GatedObserver implements OrderObserver {
+        final List<String> seen = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch gate;
+
+        GatedObserver(boolean open) {
+            gate = new CountDownLatch(open ? 0 : 1);
+        }
+
+        @Override
+        public void updated(Order order, String eventType) {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            seen.add(order.id() + ":" + eventType);
+        }
+    }
+
+    @Test
+    void events_are_delivered_off_thread_in_publish_order() throws Exception {
+        var target = new GatedObserver(true);
+        var callers = Collections.synchronizedList(new ArrayList<Thread>());
+        OrderObserver recordThread = (o, t) -> callers.add(Thread.currentThread());
+        try (var async = new AsyncObserver(target, 16, Overflow.BLOCK);
+             var asyncThread = new AsyncObserver(recordThread, 16, Overflow.BLOCK)) {
+            var order = new Order(1);
+            order.register(async);
+            order.register(asyncThread);
+            order.markItemAdded();
+            order.markPaid();
+            order.markReady();
+            assertTrue(async.awaitIdle(5, TimeUnit.SECONDS));
+            assertTrue(asyncThread.awaitIdle(5, TimeUnit.SECONDS));
+            assertEquals(List.of("1:itemAdded", "1:paid", "1:ready"), target.seen);
+            assertEquals(3, async.stats().delivered());
+            assertNotSame(Thread.currentThread(), callers.get(0));
+        }
+    }
+
+    @Test
+    void drop_oldest_keeps_the_newest_events() throws Exception {
+        var target = new GatedObserver(false);
+        try (var async = new AsyncObserver(target, 2, Overflow.DROP_OLDEST)) {
+            async.updated(new Order(1), "first"); // taken by the worker, which then waits on the gate
+            while (async.stats().depth() > 0) Thread.onSpinWait();
+            for (int i = 2; i <= 5; i++) async.updated(new Order(i), "e");
+            target.gate.countDown();
+            assertTrue(async.awaitIdle(5, TimeUnit.SECONDS));
+            assertEquals(List.of("1:first", "4:e", "5:e"), target.seen);
+            assertEquals(2, async.stats().dropped());
+            assertTrue(async.stats().maxLagNanos() > 0);
+        }
+    }
+
+    @Test
+    void coalesce_merges_repeat_events_for_the_same_order() throws Exception {
+        var target = new GatedObserver(false);
+        var order = new Order(7);
+        try (var async = new AsyncObserver(target, 2, Overflow.COALESCE_BY_ORDER)) {
+            async.updated(new Order(1), "first");
+            while (async.stats().depth() > 0) Thread.onSpinWait();
+            async.updated(order, "ready");
+            async.updated(order, "paid");
+            async.updated(order, "ready"); // full: merged into the queued ready
+            target.gate.countDown();
+            assertTrue(async.awaitIdle(5, TimeUnit.SECONDS));
+            assertEquals(List.of("1:first", "7:ready", "7:paid"), target.seen);
+            assertEquals(1, async.stats().coalesced());
+            assertEquals(0, async.stats().dropped());
+        }
+    }
+
+    @Test
+    void coalesce_never_loses_an_added_line() throws Exception {
+        var gate = new CountDownLatch(1);
+        var lines = Collections.synchronizedList(new ArrayList<String>());
+        OrderObserver slowKitchen = new OrderObserver() {
+            @Override
+            public void updated(Order order, String eventType) {}
+
+            @Override
+            public void onEvent(OrderUpdate update) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (update instanceof OrderUpdate.ItemAdded added) lines.add(added.item().product().name());
+            }
+        };
+        var order = new Order(8);
+        try (var async = new AsyncObserver(slowKitchen, 1, Overflow.COALESCE_BY_ORDER)) {
+            order.register(async);
+            var publisher = new Thread(() -> {
+                for (String name : List.of("A", "B", "C")) {
+                    order.addItem(new LineItem(new SimpleProduct("P-" + name, name, Money.of(1.00)), 1));
+                    order.markItemAdded();
+                }
+            });
+            publisher.start();
+            publisher.join(200);
+            assertTrue(publisher.isAlive(), "a full queue makes the publisher wait instead of merging lines");
+            gate.countDown();
+            publisher.join(5000);
+            assertTrue(async.awaitIdle(5, TimeUnit.SECONDS));
+            assertEquals(List.of("A", "B", "C"), lines);
+            assertEquals(0, async.stats().coalesced());
+        }
+    }
+
+    @Test
+    void close_delivers_what_is_queued_and_failures_do_not_stop_delivery() {
+        var seen = Collections.synchronizedList(new ArrayList<Long>());
+        var async = new AsyncObserver((o, t) -> {
+            if (o.id() == 2) throw new IllegalStateException("boom");
+            seen.add(o.id());
+        }, 8, Overflow.BLOCK);
+        for (long id = 1; id <= 4; id++) async.updated(new Order(id), "e");
+        async.close();
+        assertEquals(List.of(1L, 3L, 4L), seen);
+        assertEquals(1, async.stats().failed());
+        async.updated(new Order(5), "late");
+        assertEquals(1, async.stats().dropped());
+    }
+}
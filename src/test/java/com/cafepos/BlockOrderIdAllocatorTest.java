@@ -0,0 +1,120 @@
+package com.cafepos;
+
+import com.cafepos.domain.Order;
+import com.cafepos.domain.OrderIds;
+import com.cafepos.infra.BlockOrderIdAllocator;
+import com.cafepos.infra.WalOrderRepository;
+import com.cafepos.infra.Wiring;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlockOrderIdAllocatorTest {
+    @TempDir Path dir;
+
+    @Test
+    void ids_are_sequential_within_a_block() {
+        try (var ids = new BlockOrderIdAllocator(dir.resolve("ids.hwm"), 0, 100)) {
+            long first = ids.next();
+            assertTrue(first > 1000);
+            assertEquals(first + 1, ids.next());
+        }
+    }
+
+    @Test
+    void ids_are_never_reused_after_restart() {
+        Path hwm = dir.resolve("ids.hwm");
+        long last;
+        try (var ids = new BlockOrderIdAllocator(hwm, 0, 50)) {
+            for (int i = 0; i < 120; i++) ids.next();
+            last = ids.next();
+        }
+        try (var ids = new BlockOrderIdAllocator(hwm, 0, 50)) {
+            assertTrue(ids.next() > last);
+        }
+    }
+
+    @Test
+    void node_prefix_keeps_tills_apart() {
+        try (var till1 = new BlockOrderIdAllocator(dir.resolve("t1.hwm"), 1, 10);
+             var till2 = new BlockOrderIdAllocator(dir.resolve("t2.hwm"), 2, 10)) {
+            Set<Long> seen = new HashSet<>();
+            for (int i = 0; i < 100; i++) {
+                assertTrue(seen.add(till1.next()));
+                assertTrue(seen.add(till2.next()));
+            }
+            assertEquals(1, till1.next() >>> BlockOrderIdAllocator.SEQUENCE_BITS);
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> new BlockOrderIdAllocator(dir.resolve("bad.hwm"), BlockOrderIdAllocator.MAX_NODE + 1, 10));
+    }
+
+    @Test
+    void concurrent_threads_get_unique_ids() throws InterruptedException {
+        try (var ids = new BlockOrderIdAllocator(dir.resolve("ids.hwm"), 3, 64)) {
+            Set<Long> seen = ConcurrentHashMap.newKeySet();
+            Thread[] threads = new Thread[8];
+            for (int t = 0; t < threads.length; t++) {
+                threads[t] = new Thread(() -> {
+                    for (int i = 0; i < 1000; i++) seen.add(ids.next());
+                });
+                threads[t].start();
+            }
+            for (Thread t : threads) t.join();
+            assertEquals(8000, seen.size());
+        }
+    }
+
+    @Test
+    void short_lived_threads_share_reserved_ids_without_wasting_blocks() throws InterruptedException {
+        Path hwm = dir.resolve("ids.hwm");
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        try (var ids = new BlockOrderIdAllocator(hwm, 0, 1000)) {
+            for (int t = 0; t < 100; t++) {
+                Thread thread = new Thread(() -> seen.add(ids.next()));
+                thread.start();
+                thread.join();
+            }
+        }
+        assertEquals(100, seen.size());
+        long low = seen.stream().mapToLong(Long::longValue).min().orElseThrow();
+        long high = seen.stream().mapToLong(Long::longValue).max().orElseThrow();
+        assertTrue(high - low < 100 * 16, "each thread should only tie up a small first block, spread was " + (high - low));
+        try (var ids = new BlockOrderIdAllocator(hwm, 0, 1000)) {
+            long next = ids.next();
+            assertTrue(next > high);
+            assertTrue(next - low <= 1000 * 16, "one disk reservation should cover every thread, resumed at " + next);
+        }
+    }
+
+    @Test
+    void a_truncated_high_water_mark_is_refused() throws Exception {
+        Path hwm = dir.resolve("ids.hwm");
+        Files.write(hwm, new byte[]{0, 0, 0});
+        assertThrows(IllegalStateException.class, () -> new BlockOrderIdAllocator(hwm, 0, 10));
+    }
+
+    @Test
+    void durable_wiring_installs_the_allocator_above_logged_ids() {
+        long resume = OrderIds.next();
+        try {
+            try (var wal = new WalOrderRepository(dir)) {
+                wal.save(new Order(50_000));
+            }
+            var app = Wiring.createDurable(dir);
+            assertTrue(OrderIds.next() > 50_000);
+            assertTrue(Files.exists(dir.resolve("order-ids.hwm")));
+            ((WalOrderRepository) app.repo()).close();
+        } finally {
+            OrderIds.use(new AtomicLong(resume)::incrementAndGet);
+        }
+    }
+}
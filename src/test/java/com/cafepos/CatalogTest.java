@@ -33,4 +33,32 @@ public class CatalogTest {
         Catalog catalog = new InMemoryCatalog();
         assertThrows(IllegalArgumentException.class, () -> catalog.add(null));
     }
-}
\ No newline at end of file
+
+    @Test
+    void catalog_snapshots_are_versioned_and_immutable() {
+        InMemoryCatalog catalog = new InMemoryCatalog();
+        catalog.add(new SimpleProduct("P-ESP", "Espresso", Money.of(2.50)));
+        var before = catalog.snapshot();
+
+        var after = catalog.update(b -> b
+            .put(new SimpleProduct("P-ESP", "Espresso", Money.of(2.70)))
+            .put(new SimpleProduct("P-LAT", "Latte", Money.of(3.20))));
+
+        assertEquals(before.version() + 1, after.version());
+        assertEquals(1, before.size());
+        assertEquals(Money.of(2.50), before.findById("P-ESP").orElseThrow().basePrice());
+        assertEquals(Money.of(2.70), catalog.findById("P-ESP").orElseThrow().basePrice());
+        assertTrue(catalog.findById("P-LAT").isPresent());
+        assertFalse(catalog.findById(null).isPresent());
+    }
+
+    @Test
+    void failed_bulk_update_publishes_nothing() {
+        InMemoryCatalog catalog = new InMemoryCatalog();
+        catalog.add(new SimpleProduct("P1", "One", Money.of(1.00)));
+        long version = catalog.snapshot().version();
+        assertThrows(IllegalArgumentException.class, () -> catalog.update(b -> b.clear().put(null)));
+        assertEquals(version, catalog.snapshot().version());
+        assertTrue(catalog.findById("P1").isPresent());
+    }
+}
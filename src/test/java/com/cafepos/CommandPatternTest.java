@@ -1,10 +1,12 @@
 package com.cafepos;
 
 import com.cafepos.command.*;
+import com.cafepos.common.Money;
 import com.cafepos.domain.Order;
 import com.cafepos.domain.OrderIds;
 import com.cafepos.payment.CashPayment;
 import com.cafepos.payment.CardPayment;
+import com.cafepos.pricing.LoyaltyPercentDiscount;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
@@ -48,6 +50,17 @@ public class CommandPatternTest {
         assertDoesNotThrow(() -> payCmd.execute());
     }
 
+    @Test
+    void pay_command_charges_the_discounted_total() {
+        var discounted = new OrderService(order, new LoyaltyPercentDiscount(10));
+        discounted.addItem("ESP", 4); // 10.00 before discount
+        Money[] charged = {null};
+        new PayOrderCommand(discounted, request -> charged[0] = request.amount(), 10).execute();
+
+        assertEquals(Money.of(9.90), charged[0]); // 10.00 - 10% + 10% tax
+        assertEquals(discounted.totalWithTax(10), charged[0]);
+    }
+
     @Test
     void testPosRemoteSlotBinding() {
         AddItemCommand addCmd = new AddItemCommand(service, "CAP", 1);
@@ -59,10 +59,11 @@ public class ComprehensiveProjectTest {
         Order order = new Order(OrderIds.next());
         order.addItem(new LineItem(catalog.findById("P-ESP").orElseThrow(), 1));
         
-        // Test all payment strategies work without throwing exceptions
-        assertDoesNotThrow(() -> new CashPayment().pay(order));
-        assertDoesNotThrow(() -> new CardPayment("1234567812341234").pay(order));
-        assertDoesNotThrow(() -> new WalletPayment("wallet-123").pay(order));
+        // Test all payment strategies charge a priced order without throwing exceptions
+        var request = new PaymentRequest(order, order.subtotal());
+        assertDoesNotThrow(() -> new CashPayment().pay(request));
+        assertDoesNotThrow(() -> new CardPayment("1234567812341234").pay(request));
+        assertDoesNotThrow(() -> new WalletPayment("wallet-123").pay(request));
         
         // Test payment strategy properties
         CardPayment cardPayment = new CardPayment("1234567890123456");
@@ -89,7 +90,7 @@ public class ComprehensiveProjectTest {
         order.addItem(new LineItem(catalog.findById("P-ESP").orElseThrow(), 1));
         assertDoesNotThrow(() -> order.markItemAdded());
         
-        order.pay(new CashPayment());
+        order.pay(new CashPayment(), order.subtotal());
         assertDoesNotThrow(() -> order.markPaid());
         
         assertDoesNotThrow(() -> order.markReady());
@@ -374,7 +375,7 @@ public class ComprehensiveProjectTest {
         order.addItem(new LineItem(p1, 1));
         order.addItem(new LineItem(p2, 2));
         
-        assertDoesNotThrow(() -> card.pay(order));
+        assertDoesNotThrow(() -> card.pay(new PaymentRequest(order, order.subtotal())));
         
         Money subtotal = order.subtotal();
         assertTrue(loyalty.discountOf(subtotal).compareTo(Money.zero()) >= 0);
@@ -41,4 +41,33 @@ public class DecoratorTest {
         o.addItem(new LineItem(withShot, 2));
         assertEquals(Money.of(6.60), o.subtotal());
     }
-}
\ No newline at end of file
+
+    @Test
+    void flattened_chain_matches_original() {
+        Product latte = new SimpleProduct("P-LAT", "Latte", Money.of(3.20));
+        Product chain = new SizeLarge(new Syrup(new OatMilk(new ExtraShot(new ExtraShot(latte)))));
+        Product flat = FlatProduct.of(chain);
+
+        assertEquals(chain.id(), flat.id());
+        assertEquals(chain.name(), flat.name());
+        assertEquals(chain.basePrice(), flat.basePrice());
+        assertEquals(((Priced) chain).price(), ((Priced) flat).price());
+        assertEquals(java.util.List.of("Extra Shot", "Extra Shot", "Oat Milk", "Syrup", "Large"),
+            ((FlatProduct) flat).addOns());
+        assertEquals(FlatProduct.of(chain), flat);
+        assertEquals(FlatProduct.of(chain).hashCode(), flat.hashCode());
+        assertEquals(chain, flat);
+        assertEquals(flat, chain);
+        assertEquals(chain.hashCode(), flat.hashCode());
+        assertNotEquals(flat, new SizeLarge(new Syrup(new OatMilk(new ExtraShot(latte)))));
+        assertNotEquals(new Syrup(new SizeLarge(latte)), new SizeLarge(new Syrup(latte)));
+        assertSame(latte, FlatProduct.of(latte));
+    }
+
+    @Test
+    void factory_returns_flattened_products() {
+        Product viaFactory = new ProductFactory().create("LAT+SHOT+SHOT+OAT+SYP+L");
+        assertTrue(viaFactory instanceof FlatProduct);
+        assertEquals(Money.of(3.20 + 0.80 + 0.80 + 0.50 + 0.30 + 0.70), ((Priced) viaFactory).price());
+    }
+}
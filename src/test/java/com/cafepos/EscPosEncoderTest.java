@@ -0,0 +1,78 @@
+package com.cafepos;
+
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.common.Money;
+import com.cafepos.domain.LineItem;
+import com.cafepos.pricing.FixedRateTaxPolicy;
+import com.cafepos.pricing.LoyaltyPercentDiscount;
+import com.cafepos.pricing.PricingService;
+import com.cafepos.printing.EscPosEncoder;
+import com.cafepos.printing.EscPosReceiptPrinter;
+import com.cafepos.printing.PrinterDevice;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EscPosEncoderTest {
+
+    /** Stand-in for the thermal printer that keeps every byte it is sent. */
+    private static final class CapturingPrinter implements PrinterDevice {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        @Override
+        public void write(java.nio.ByteBuffer payload) {
+            byte[] chunk = new byte[payload.remaining()];
+            payload.get(chunk);
+            bytes.writeBytes(chunk);
+        }
+
+        String text() {
+            return bytes.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void commands_and_text_are_encoded_directly() {
+        var out = new EscPosEncoder(20);
+        out.init().bold(true).text("Hi €").bold(false).align(EscPosEncoder.Align.CENTER).cut();
+        byte[] expected = {0x1B, '@', 0x1B, 'E', 1, 'H', 'i', ' ', (byte) 0xE2, (byte) 0x82, (byte) 0xAC,
+                0x1B, 'E', 0, 0x1B, 'a', 1, 0x1D, 'V', 1};
+        assertArrayEquals(expected, out.toByteArray());
+        assertArrayEquals("Hi €".getBytes(StandardCharsets.UTF_8),
+                new EscPosEncoder().text("Hi €").toByteArray());
+    }
+
+    @Test
+    void amounts_match_money_formatting_and_align_right() {
+        var out = new EscPosEncoder(16);
+        for (double v : new double[]{0, 0.05, 1.5, 12.34, 1000}) {
+            out.reset().money(Money.of(v));
+            assertEquals(Money.of(v).toString(), new String(out.toByteArray(), StandardCharsets.US_ASCII));
+        }
+        out.reset().text("Total:").amountRight(Money.of(3.52));
+        assertEquals("Total:      3.52\n", new String(out.toByteArray(), StandardCharsets.US_ASCII));
+        out.reset().text("Discount:").amountRight(Money.of(0.39), true);
+        assertEquals("Discount:  -0.39\n", new String(out.toByteArray(), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void receipt_is_streamed_to_the_device() {
+        var pricing = new PricingService(new LoyaltyPercentDiscount(5), new FixedRateTaxPolicy(10));
+        var priced = pricing.price(List.of(
+                new LineItem(new SimpleProduct("P-ESP", "Espresso", Money.of(2.50)), 2),
+                new LineItem(new SimpleProduct("P-LAT", "Latte", Money.of(2.80)), 1)));
+        var device = new CapturingPrinter();
+        new EscPosReceiptPrinter(device, 32).print(42, priced, 10);
+
+        String text = device.text();
+        assertTrue(text.startsWith("\u001B@\u001Ba\u0001\u001BE\u0001Order #42\u001BE\u0000\n\u001Ba\u0000"));
+        assertTrue(text.contains(" - Espresso x2" + " ".repeat(14) + "5.00\n"));
+        assertTrue(text.contains("Discount:" + " ".repeat(18) + "-0.39\n"));
+        assertTrue(text.contains("\u001BE\u0001Total:" + " ".repeat(22) + "8.15\n\u001BE\u0000"));
+        assertTrue(text.endsWith("\u001Bd\u0003\u001DV\u0001"));
+    }
+}
@@ -0,0 +1,110 @@
+package com.cafepos;
+
+import com.cafepos.app.events.EventBus;
+import com.cafepos.app.events.OrderCreated;
+import com.cafepos.app.events.OrderEvent;
+import com.cafepos.app.events.OrderPaid;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventBusTest {
+
+    @Test
+    void supertype_handlers_receive_subtype_events() {
+        var seen = Collections.synchronizedList(new ArrayList<String>());
+        try (var bus = new EventBus()) {
+            bus.on(OrderEvent.class, e -> seen.add("any:" + e));
+            bus.on(OrderPaid.class, e -> seen.add("paid:" + e.orderId()));
+            bus.on(Object.class, e -> seen.add("object"));
+            bus.emit(new OrderCreated(1));
+            bus.emit(new OrderPaid(1));
+            bus.flush();
+            assertEquals(List.of("any:OrderCreated[orderId=1]", "object",
+                    "any:OrderPaid[orderId=1]", "paid:1", "object"), seen);
+        }
+    }
+
+    @Test
+    void concurrent_producers_through_a_small_ring_lose_nothing() throws Exception {
+        int producers = 4, perProducer = 20_000;
+        long[] lastSeen = new long[producers];
+        var outOfOrder = new ArrayList<String>();
+        var count = new long[1];
+        var pool = Executors.newFixedThreadPool(producers);
+        try (var bus = new EventBus(64)) {
+            // single consumer thread, so plain fields are safe inside the handler
+            bus.on(OrderCreated.class, e -> {
+                int p = (int) (e.orderId() / perProducer);
+                if (e.orderId() <= lastSeen[p]) outOfOrder.add(String.valueOf(e.orderId()));
+                lastSeen[p] = e.orderId();
+                count[0]++;
+            });
+            var futures = new ArrayList<Future<?>>();
+            for (int p = 0; p < producers; p++) {
+                long base = (long) p * perProducer;
+                futures.add(pool.submit(() -> {
+                    for (long id = base + 1; id < base + perProducer; id++) bus.emit(new OrderCreated(id));
+                }));
+            }
+            for (var f : futures) f.get();
+            bus.flush();
+            assertEquals((long) producers * (perProducer - 1), count[0]);
+            assertTrue(outOfOrder.isEmpty(), "per-producer order broken: " + outOfOrder);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void failing_handlers_are_counted_and_close_drains() {
+        var seen = Collections.synchronizedList(new ArrayList<Long>());
+        var bus = new EventBus(2);
+        bus.on(OrderPaid.class, e -> {
+            if (e.orderId() == 2) throw new IllegalStateException("boom");
+            seen.add(e.orderId());
+        });
+        bus.on(OrderPaid.class, e -> {
+            if (e.orderId() == 3) bus.emit(new OrderCreated(99)); // emitting from a handler must not deadlock
+        });
+        for (long id = 1; id <= 5; id++) bus.emit(new OrderPaid(id));
+        bus.close();
+        assertEquals(List.of(1L, 3L, 4L, 5L), seen);
+        assertEquals(1, bus.failures());
+        assertThrows(IllegalStateException.class, () -> bus.emit(new OrderPaid(6)));
+    }
+
+    @Test
+    void every_emit_accepted_before_close_is_handled() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            var handled = new java.util.concurrent.atomic.AtomicInteger();
+            var accepted = new java.util.concurrent.atomic.AtomicInteger();
+            var bus = new EventBus(8);
+            bus.on(OrderEvent.class, e -> handled.incrementAndGet());
+            var pool = Executors.newFixedThreadPool(4);
+            for (int t = 0; t < 4; t++) {
+                pool.submit(() -> {
+                    for (long id = 0; ; id++) {
+                        try {
+                            bus.emit(new OrderCreated(id));
+                            accepted.incrementAndGet();
+                        } catch (IllegalStateException closed) {
+                            return;
+                        }
+                    }
+                });
+            }
+            Thread.sleep(2);
+            bus.close();
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(5, java.util.concurrent.TimeUnit.SECONDS));
+            assertEquals(accepted.get(), handled.get());
+        }
+    }
+}
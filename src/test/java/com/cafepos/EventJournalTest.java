@@ -0,0 +1,206 @@
+package com.cafepos;
+
+import com.cafepos.app.events.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventJournalTest {
+
+    @Test
+    void offsets_survive_reopen_across_segments(@TempDir Path dir) {
+        try (var journal = EventJournal.open(dir, 4)) {
+            for (long id = 0; id < 10; id++) {
+                assertEquals(id, journal.append(id % 2 == 0 ? new OrderCreated(id) : new OrderPaid(id)));
+            }
+        }
+        try (var journal = EventJournal.open(dir, 4)) {
+            assertEquals(10, journal.nextOffset());
+            var batch = journal.read(3, 5); // crosses a segment boundary
+            assertEquals(5, batch.size());
+            assertEquals(3, batch.get(0).offset());
+            assertEquals(new OrderPaid(3), batch.get(0).event());
+            assertEquals(new OrderCreated(4), batch.get(1).event());
+            assertTrue(journal.read(10, 5).isEmpty());
+            assertEquals(10, journal.append(new OrderCreated(10)));
+        }
+    }
+
+    @Test
+    void consumer_resumes_from_its_stored_offset(@TempDir Path dir) {
+        try (var journal = EventJournal.open(dir)) {
+            for (long id = 1; id <= 5; id++) journal.append(new OrderCreated(id));
+            var seen = new ArrayList<OrderEvent>();
+            long resumeAt = journal.replay(0, e -> seen.add(e.event()));
+            assertEquals(5, resumeAt);
+            assertEquals(5, seen.size());
+
+            journal.append(new OrderPaid(1));
+            journal.append(new OrderPaid(2));
+            seen.clear();
+            assertEquals(7, journal.replay(resumeAt, e -> seen.add(e.event())));
+            assertEquals(List.of(new OrderPaid(1), new OrderPaid(2)), seen);
+        }
+    }
+
+    @Test
+    void torn_tail_is_cut_off_on_open(@TempDir Path dir) throws Exception {
+        try (var journal = EventJournal.open(dir)) {
+            for (long id = 1; id <= 3; id++) journal.append(new OrderCreated(id));
+        }
+        Path segment;
+        try (var files = Files.list(dir)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        try (var ch = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            ch.truncate(ch.size() - 5); // crash mid-write of the third record
+        }
+        try (var journal = EventJournal.open(dir)) {
+            assertEquals(2, journal.nextOffset());
+            assertEquals(2, journal.append(new OrderPaid(9)));
+            assertEquals(new OrderPaid(9), journal.read(2, 1).get(0).event());
+        }
+    }
+
+    @Test
+    void bus_journals_events_before_handling_them(@TempDir Path dir) {
+        var journal = EventJournal.open(dir);
+        try (var bus = new EventBus(16, journal)) {
+            bus.on(OrderEvent.class, e -> {});
+            bus.emit(new OrderCreated(1));
+            bus.emit("not an order event");
+            bus.emit(new OrderPaid(1));
+            bus.flush();
+        }
+        var replayed = new ArrayList<OrderEvent>();
+        assertEquals(2, journal.replay(0, e -> replayed.add(e.event())));
+        assertEquals(List.of(new OrderCreated(1), new OrderPaid(1)), replayed);
+        journal.close();
+    }
+
+    @Test
+    void subscriber_catches_up_from_the_offset_it_stored(@TempDir Path dir) {
+        var journal = EventJournal.open(dir);
+        var handled = new ArrayList<OrderEvent>();
+        var stored = new AtomicLong(-1); // offset of the last event the subscriber handled
+        try (var bus = new EventBus(16, journal)) {
+            bus.on(OrderEvent.class, (Long offset, OrderEvent e) -> {
+                handled.add(e);
+                stored.set(offset);
+            });
+            bus.emit(new OrderCreated(1));
+            bus.emit(new OrderCreated(2));
+            bus.flush();
+        }
+        assertEquals(1, stored.get());
+
+        // the subscriber is down while the till keeps going
+        try (var bus = new EventBus(16, journal)) {
+            bus.on(OrderEvent.class, e -> {});
+            bus.emit(new OrderPaid(1));
+            bus.emit(new OrderPaid(2));
+        }
+
+        long resumeAt = journal.replay(stored.get() + 1, e -> {
+            handled.add(e.event());
+            stored.set(e.offset());
+        });
+        assertEquals(4, resumeAt);
+        assertEquals(3, stored.get());
+        assertEquals(List.of(new OrderCreated(1), new OrderCreated(2), new OrderPaid(1), new OrderPaid(2)), handled);
+        journal.close();
+    }
+
+    @Test
+    void events_that_are_not_journaled_have_no_offset() {
+        var offsets = new ArrayList<Long>();
+        try (var bus = new EventBus(16)) {
+            bus.on(Object.class, (Long offset, Object e) -> offsets.add(offset));
+            bus.emit(new OrderCreated(1));
+            bus.emit("not an order event");
+            bus.flush();
+        }
+        assertEquals(List.of(-1L, -1L), offsets);
+    }
+
+    @Test
+    void failed_writes_keep_buffered_events_for_the_next_flush(@TempDir Path dir) throws Exception {
+        var failing = new AtomicBoolean();
+        try (var journal = EventJournal.open(dir, 1 << 16, file -> new FlakyChannel(file, failing))) {
+            for (long id = 0; id < 3; id++) journal.append(new OrderCreated(id));
+            failing.set(true);
+            assertThrows(UncheckedIOException.class, journal::flush);
+
+            // while the buffer is full and cannot be written, appends fail without taking an offset
+            long taken = 3;
+            while (true) {
+                try {
+                    assertEquals(taken, journal.append(new OrderPaid(taken)));
+                    taken++;
+                } catch (UncheckedIOException e) {
+                    break;
+                }
+            }
+            assertEquals(taken, journal.nextOffset());
+
+            failing.set(false);
+            assertEquals(taken, journal.append(new OrderPaid(taken)));
+            var all = journal.read(0, (int) taken + 1);
+            assertEquals(taken + 1, all.size());
+            for (int i = 0; i < all.size(); i++) {
+                assertEquals(i, all.get(i).offset());
+                assertEquals(i < 3 ? new OrderCreated(i) : new OrderPaid(i), all.get(i).event());
+            }
+        }
+    }
+
+    /** A segment file whose writes fail while {@code failing} is set. */
+    private static final class FlakyChannel extends FileChannel {
+        private final FileChannel file;
+        private final AtomicBoolean failing;
+
+        FlakyChannel(Path path, AtomicBoolean failing) throws IOException {
+            this.file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.failing = failing;
+        }
+
+        private void check() throws IOException {
+            if (failing.get()) throw new IOException("disk full");
+        }
+
+        @Override public int read(ByteBuffer dst) throws IOException { return file.read(dst); }
+        @Override public long read(ByteBuffer[] dsts, int offset, int length) throws IOException { return file.read(dsts, offset, length); }
+        @Override public int read(ByteBuffer dst, long position) throws IOException { return file.read(dst, position); }
+        @Override public int write(ByteBuffer src) throws IOException { check(); return file.write(src); }
+        @Override public long write(ByteBuffer[] srcs, int offset, int length) throws IOException { check(); return file.write(srcs, offset, length); }
+        @Override public int write(ByteBuffer src, long position) throws IOException { check(); return file.write(src, position); }
+        @Override public long position() throws IOException { return file.position(); }
+        @Override public FileChannel position(long newPosition) throws IOException { file.position(newPosition); return this; }
+        @Override public long size() throws IOException { return file.size(); }
+        @Override public FileChannel truncate(long size) throws IOException { file.truncate(size); return this; }
+        @Override public void force(boolean metaData) throws IOException { file.force(metaData); }
+        @Override public long transferTo(long position, long count, WritableByteChannel target) throws IOException { return file.transferTo(position, count, target); }
+        @Override public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException { check(); return file.transferFrom(src, position, count); }
+        @Override public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException { return file.map(mode, position, size); }
+        @Override public FileLock lock(long position, long size, boolean shared) throws IOException { return file.lock(position, size, shared); }
+        @Override public FileLock tryLock(long position, long size, boolean shared) throws IOException { return file.tryLock(position, size, shared); }
+        @Override protected void implCloseChannel() throws IOException { file.close(); }
+    }
+}
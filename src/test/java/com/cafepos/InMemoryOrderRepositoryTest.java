@@ -0,0 +1,59 @@
+package com.cafepos;
+
+import com.cafepos.domain.Order;
+import com.cafepos.infra.InMemoryOrderRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryOrderRepositoryTest {
+
+    @Test
+    void save_and_find_by_primitive_id() {
+        var repo = new InMemoryOrderRepository();
+        var order = new Order(Long.MIN_VALUE);
+        repo.save(new Order(0));
+        repo.save(order);
+        assertSame(order, repo.findById(Long.MIN_VALUE).orElseThrow());
+        assertTrue(repo.findById(0).isPresent());
+        assertTrue(repo.findById(1).isEmpty());
+
+        var replacement = new Order(0);
+        repo.save(replacement);
+        assertSame(replacement, repo.findById(0).orElseThrow());
+    }
+
+    @Test
+    void concurrent_saves_and_lookups_see_every_order() throws Exception {
+        var repo = new InMemoryOrderRepository();
+        int threads = 8, perThread = 5_000;
+        var pool = Executors.newFixedThreadPool(threads);
+        var misses = new AtomicInteger();
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < threads; t++) {
+                long base = (long) t * perThread;
+                futures.add(pool.submit(() -> {
+                    for (long id = base; id < base + perThread; id++) {
+                        repo.save(new Order(id));
+                        if (repo.findById(id).isEmpty()) misses.incrementAndGet();
+                        // read something another thread may be writing right now
+                        repo.findById((id * 31) % (threads * perThread));
+                    }
+                }));
+            }
+            for (var f : futures) f.get();
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(0, misses.get());
+        for (long id = 0; id < threads * perThread; id++) {
+            assertEquals(id, repo.findById(id).orElseThrow().id());
+        }
+    }
+}
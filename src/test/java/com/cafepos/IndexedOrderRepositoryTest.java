@@ -0,0 +1,141 @@
+package com.cafepos;
+
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.common.Money;
+import com.cafepos.domain.*;
+import com.cafepos.infra.InMemoryOrderRepository;
+import com.cafepos.infra.IndexedOrderRepository;
+import com.cafepos.payment.CardPayment;
+import com.cafepos.payment.CashPayment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexedOrderRepositoryTest {
+    private IndexedOrderRepository repo;
+
+    private static LineItem line(String productId) {
+        return new LineItem(new SimpleProduct(productId, productId, Money.of(2.00)), 1);
+    }
+
+    private Order save(long id, long createdAt, String productId) {
+        var order = new Order(id, createdAt);
+        order.addItem(line(productId));
+        repo.save(order);
+        return order;
+    }
+
+    private static List<Long> ids(List<Order> orders) {
+        return orders.stream().map(Order::id).toList();
+    }
+
+    @BeforeEach
+    void setUp() {
+        repo = new IndexedOrderRepository(new InMemoryOrderRepository());
+    }
+
+    @Test
+    void finds_by_status_after_resave() {
+        var a = save(1, 100, "P-ESP");
+        save(2, 200, "P-LAT");
+        a.markPaid();
+        assertEquals(2, repo.count(OrderQuery.all().withStatus(OrderStatus.OPEN)), "not re-saved yet");
+        repo.save(a);
+        assertEquals(List.of(1L), ids(repo.stream(OrderQuery.all().withStatus(OrderStatus.PAID)).toList()));
+        assertEquals(List.of(2L), ids(repo.stream(OrderQuery.all().withStatus(OrderStatus.OPEN)).toList()));
+    }
+
+    @Test
+    void finds_by_product_time_window_and_id_range() {
+        save(1, 100, "P-ESP");
+        save(2, 200, "P-LAT");
+        save(3, 300, "P-ESP");
+        save(4, 400, "P-ESP");
+        var espressos = OrderQuery.all().withProduct("P-ESP");
+        assertEquals(List.of(1L, 3L, 4L), ids(repo.stream(espressos).toList()));
+        assertEquals(List.of(3L), ids(repo.stream(espressos.createdBetween(200, 400)).toList()));
+        assertEquals(List.of(3L, 4L), ids(repo.stream(espressos.idBetween(2, 10)).toList()));
+        assertEquals(0, repo.count(OrderQuery.all().withProduct("P-NONE")));
+    }
+
+    @Test
+    void product_index_follows_removed_lines() {
+        var order = save(1, 100, "P-ESP");
+        order.addItem(line("P-CAP"));
+        repo.save(order);
+        assertEquals(1, repo.count(OrderQuery.all().withProduct("P-CAP")));
+        order.removeLastItem();
+        repo.save(order);
+        assertEquals(0, repo.count(OrderQuery.all().withProduct("P-CAP")));
+    }
+
+    @Test
+    void finds_by_payment_type() {
+        var cash = save(1, 100, "P-ESP");
+        var card = save(2, 100, "P-LAT");
+        cash.pay(new CashPayment(), cash.subtotal());
+        card.pay(new CardPayment("1234567890123456"), card.subtotal());
+        repo.save(cash);
+        repo.save(card);
+        assertEquals(List.of(2L), ids(repo.stream(OrderQuery.all().withPaymentType("CARD")).toList()));
+    }
+
+    @Test
+    void pages_through_large_results() {
+        for (long id = 1; id <= 25; id++) save(id, id, "P-ESP");
+        var seen = new ArrayList<Long>();
+        int cursor = 0;
+        int pages = 0;
+        while (cursor >= 0) {
+            var page = repo.page(OrderQuery.all(), cursor, 10);
+            seen.addAll(ids(page.orders()));
+            cursor = page.nextCursor();
+            pages++;
+        }
+        assertEquals(3, pages);
+        assertEquals(25, seen.size());
+        assertEquals(1L, seen.get(0));
+        assertEquals(25L, seen.get(24));
+    }
+
+    @Test
+    void range_queries_come_back_in_index_order() {
+        save(5, 3000, "P-ESP");
+        save(9, 1000, "P-ESP");
+        save(7, 2000, "P-LAT");
+        save(6, 2500, "P-ESP");
+        var window = OrderQuery.all().createdBetween(0, 10_000);
+        assertEquals(List.of(9L, 7L, 6L, 5L), ids(repo.stream(window).toList()));
+        assertEquals(List.of(5L, 6L, 7L, 9L), ids(repo.stream(OrderQuery.all().idBetween(0, 100)).toList()));
+
+        var seen = new ArrayList<Long>();
+        int cursor = 0;
+        while (cursor >= 0) {
+            var page = repo.page(window.withProduct("P-ESP"), cursor, 2);
+            seen.addAll(ids(page.orders()));
+            cursor = page.nextCursor();
+        }
+        assertEquals(List.of(9L, 6L, 5L), seen);
+    }
+
+    @Test
+    void stream_fetches_pages_as_it_is_consumed() {
+        for (long id = 1; id <= 600; id++) save(id, 1000 + id, "P-ESP");
+        var window = OrderQuery.all().createdBetween(1001, 2000);
+        var it = repo.stream(window).iterator();
+        assertEquals(1L, it.next().id());
+        save(700, 1900, "P-ESP"); // lands after the first page, so the stream still reaches it
+        long seen = 1, last = 1;
+        while (it.hasNext()) {
+            last = it.next().id();
+            seen++;
+        }
+        assertEquals(601, seen);
+        assertEquals(700L, last);
+        assertEquals(601, repo.count(window));
+    }
+}
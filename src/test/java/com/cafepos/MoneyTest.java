@@ -51,4 +51,62 @@ public class MoneyTest {
         assertEquals(m1, m2);
         assertEquals(m1.hashCode(), m2.hashCode());
     }
-}
\ No newline at end of file
+
+    @Test
+    void money_cents_round_trip() {
+        Money m = Money.ofCents(1234);
+        assertEquals(1234, m.asCents());
+        assertEquals(Money.of(12.34), m);
+        assertEquals(new java.math.BigDecimal("12.34"), m.asBigDecimal());
+    }
+
+    @Test
+    void money_percent_rounds_half_up() {
+        assertEquals(Money.of(0.13), Money.of(2.50).percent(5)); // 0.125 -> 0.13
+        assertEquals(Money.of(0.12), Money.of(2.48).percent(5)); // 0.124 -> 0.12
+        assertEquals(13, Money.percentOfCents(250, 5));
+    }
+
+    @Test
+    void money_subtract_cannot_go_negative() {
+        assertEquals(Money.of(1.50), Money.of(2.50).subtract(Money.of(1.00)));
+        assertThrows(IllegalArgumentException.class, () -> Money.of(1.00).subtract(Money.of(2.00)));
+    }
+
+    @Test
+    void money_overflow_is_detected() {
+        Money big = Money.ofCents(Long.MAX_VALUE / 2 + 1);
+        assertThrows(ArithmeticException.class, () -> big.add(big));
+        assertThrows(ArithmeticException.class, () -> big.multiply(2));
+    }
+
+    @Test
+    void common_amounts_share_canonical_instances() {
+        assertSame(Money.zero(), Money.of(0.00));
+        assertSame(Money.of(2.50), Money.of(2.00).add(Money.of(0.50)));
+        assertSame(Money.of(3.30), Money.ofCents(330));
+    }
+
+    @Test
+    void cache_stats_count_hits_and_misses() {
+        var before = Money.cacheStats();
+        Money.ofCents(100);
+        Money.ofCents(10_000_000);
+        var after = Money.cacheStats();
+        // other threads in the JVM may create Money too, so only check our own contribution
+        assertTrue(after.hits() - before.hits() >= 1);
+        assertTrue(after.misses() - before.misses() >= 1);
+        assertTrue(after.hitRate() > 0.0 && after.hitRate() < 1.0);
+        assertEquals(Money.ofCents(10_000_000), Money.ofCents(10_000_000));
+        assertEquals(Money.ofCents(10_000_000).hashCode(), Money.ofCents(10_000_000).hashCode());
+    }
+
+    @Test
+    void to_string_matches_two_decimal_format() {
+        for (long cents : new long[]{0, 1, 9, 10, 99, 100, 105, 1234, 100_000, 123_456_789_01L}) {
+            String expected = String.format(java.util.Locale.ROOT, "%.2f", Money.ofCents(cents).asBigDecimal());
+            assertEquals(expected, Money.ofCents(cents).toString());
+        }
+        assertEquals("x-3.07", Money.appendCents(new StringBuilder("x"), -307).toString());
+    }
+}
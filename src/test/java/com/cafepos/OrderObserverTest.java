@@ -1,8 +1,13 @@
 package com.cafepos;
 
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.common.Money;
 import com.cafepos.domain.*;
 import com.cafepos.observers.*;
 import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class OrderObserverTest {
@@ -77,6 +82,77 @@ public class OrderObserverTest {
         assertEquals(1, observer.notificationCount);
     }
     
+    @Test
+    void typed_events_only_reach_subscribed_observers() {
+        Order order = new Order(1);
+        var events = new ArrayList<OrderUpdate>();
+        OrderObserver paidOnly = new OrderObserver() {
+            @Override public void updated(Order o, String eventType) {
+                fail("typed observers should not get the string form");
+            }
+            @Override public void onEvent(OrderUpdate event) {
+                events.add(event);
+            }
+            @Override public int subscriptions() {
+                return EventKind.PAID.bit();
+            }
+        };
+        TestObserver legacy = new TestObserver();
+        order.register(paidOnly);
+        order.register(legacy);
+
+        order.addItem(new LineItem(new SimpleProduct("P-ESP", "Espresso", Money.of(2.50)), 2));
+        order.markItemAdded();
+        order.markPaid(Money.of(5.50));
+        order.markReady();
+
+        assertEquals(3, legacy.notificationCount);
+        assertEquals("ready", legacy.lastEventType);
+        assertEquals(1, events.size());
+        var paid = assertInstanceOf(OrderUpdate.Paid.class, events.get(0));
+        assertEquals(Money.of(5.50), paid.amount());
+    }
+
+    @Test
+    void paid_events_carry_the_charged_amount() {
+        Order order = new Order(2);
+        order.addItem(new LineItem(new SimpleProduct("P-ESP", "Espresso", Money.of(10.00)), 1));
+        var paid = new ArrayList<OrderUpdate.Paid>();
+        order.register(new OrderObserver() {
+            @Override public void updated(Order o, String eventType) {}
+            @Override public void onEvent(OrderUpdate event) {
+                paid.add((OrderUpdate.Paid) event);
+            }
+            @Override public int subscriptions() {
+                return EventKind.PAID.bit();
+            }
+        });
+
+        order.pay(new com.cafepos.payment.CashPayment(), Money.of(11.00)); // subtotal plus tax
+        order.markPaid();
+
+        assertEquals(Money.of(11.00), paid.get(0).amount());
+        assertNull(paid.get(1).amount(), "markPaid() does not know what was charged");
+        assertEquals(OrderStatus.PAID, order.status());
+    }
+
+    @Test
+    void item_added_event_carries_the_line() {
+        Order order = new Order(1);
+        var seen = new ArrayList<OrderUpdate>();
+        order.register(new OrderObserver() {
+            @Override public void updated(Order o, String eventType) {}
+            @Override public void onEvent(OrderUpdate event) { seen.add(event); }
+        });
+        var line = new LineItem(new SimpleProduct("P-LAT", "Latte", Money.of(3.20)), 1);
+        order.addItem(line);
+        order.markItemAdded();
+        order.notifyObservers(order, "itemAdded"); // legacy string path maps to the same event
+        assertEquals(2, seen.size());
+        assertSame(line, ((OrderUpdate.ItemAdded) seen.get(0)).item());
+        assertEquals(seen.get(0), seen.get(1));
+    }
+
     private static class TestObserver implements OrderObserver {
         boolean wasNotified = false;
         String lastEventType = null;
@@ -0,0 +1,120 @@
+package com.cafepos;
+
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.common.Money;
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+import com.cafepos.infra.InMemoryOrderRepository;
+import com.cafepos.infra.OrderSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderSnapshotTest {
+    @TempDir Path dir;
+
+    private static Order order(long id, double price, int qty) {
+        var o = new Order(id);
+        o.addItem(new LineItem(new SimpleProduct("P-" + id, "Item " + id, Money.of(price)), qty));
+        return o;
+    }
+
+    @Test
+    void warm_start_serves_orders_from_snapshot() {
+        Path file = dir.resolve("orders.snap");
+        var repo = new InMemoryOrderRepository();
+        for (long id = 1; id <= 1000; id++) repo.save(order(id, 1.50, (int) (id % 3) + 1));
+        repo.writeSnapshot(file);
+
+        var snapshot = OrderSnapshot.open(file);
+        assertEquals(1000, snapshot.size());
+        var warm = new InMemoryOrderRepository(snapshot);
+        var restored = warm.findById(500).orElseThrow();
+        assertEquals("Item 500", restored.items().get(0).product().name());
+        assertEquals(Money.of(1.50 * 3), restored.subtotal());
+        assertSame(restored, warm.findById(500).orElseThrow());
+        assertTrue(warm.findById(5000).isEmpty());
+    }
+
+    @Test
+    void snapshot_of_warm_repository_keeps_untouched_and_updated_orders() {
+        Path first = dir.resolve("a.snap");
+        var repo = new InMemoryOrderRepository();
+        repo.save(order(1, 2.00, 1));
+        repo.save(order(2, 3.00, 1));
+        repo.writeSnapshot(first);
+
+        var warm = new InMemoryOrderRepository(OrderSnapshot.open(first));
+        var updated = warm.findById(2).orElseThrow();
+        updated.addItem(new LineItem(new SimpleProduct("X", "Extra", Money.of(1.00)), 1));
+        warm.save(updated);
+        warm.save(order(3, 4.00, 1));
+        Path second = dir.resolve("b.snap");
+        warm.writeSnapshot(second);
+
+        var snapshot = OrderSnapshot.open(second);
+        assertEquals(3, snapshot.size());
+        assertEquals(Money.of(2.00), snapshot.load(1).orElseThrow().subtotal());
+        assertEquals(Money.of(4.00), snapshot.load(2).orElseThrow().subtotal());
+        assertEquals(Money.of(4.00), snapshot.load(3).orElseThrow().subtotal());
+    }
+
+    @Test
+    void scheduled_snapshots_are_written() throws Exception {
+        Path file = dir.resolve("periodic.snap");
+        var repo = new InMemoryOrderRepository();
+        repo.save(order(9, 1.00, 1));
+        var task = repo.scheduleSnapshots(file, 10, TimeUnit.MILLISECONDS);
+        try {
+            for (int i = 0; i < 200 && !Files.exists(file); i++) Thread.sleep(10);
+        } finally {
+            task.cancel(false);
+        }
+        assertTrue(OrderSnapshot.open(file).contains(9));
+    }
+
+    @Test
+    void untouched_records_are_carried_over_between_saved_orders() {
+        Path first = dir.resolve("first.snap");
+        var repo = new InMemoryOrderRepository();
+        for (long id = 2; id <= 100; id += 2) repo.save(order(id, 1.00, 1));
+        repo.writeSnapshot(first);
+
+        var warm = new InMemoryOrderRepository(OrderSnapshot.open(first));
+        warm.findById(50).orElseThrow().addItem(new LineItem(new SimpleProduct("X", "Extra", Money.of(2.00)), 1));
+        for (long id = 1; id <= 101; id += 20) warm.save(order(id, 3.00, 1));
+        Path second = dir.resolve("second.snap");
+        warm.writeSnapshot(second);
+
+        var snapshot = OrderSnapshot.open(second);
+        assertEquals(56, snapshot.size());
+        for (int i = 1; i < snapshot.size(); i++) assertTrue(snapshot.idAt(i - 1) < snapshot.idAt(i));
+        assertEquals(Money.of(1.00), snapshot.load(100).orElseThrow().subtotal());
+        assertEquals("Item 98", snapshot.load(98).orElseThrow().items().get(0).product().name());
+        assertEquals(Money.of(3.00), snapshot.load(50).orElseThrow().subtotal());
+        assertEquals(Money.of(3.00), snapshot.load(101).orElseThrow().subtotal());
+    }
+
+    @Test
+    void scheduled_snapshots_keep_running_after_a_failed_write() throws Exception {
+        Path later = dir.resolve("later");
+        Path file = later.resolve("orders.snap");
+        var repo = new InMemoryOrderRepository();
+        repo.save(order(9, 1.00, 1));
+        var task = repo.scheduleSnapshots(file, 10, TimeUnit.MILLISECONDS);
+        try {
+            for (int i = 0; i < 200 && repo.lastSnapshotFailure() == null; i++) Thread.sleep(10);
+            assertNotNull(repo.lastSnapshotFailure(), "the directory does not exist yet");
+            Files.createDirectories(later);
+            for (int i = 0; i < 200 && !Files.exists(file); i++) Thread.sleep(10);
+        } finally {
+            task.cancel(false);
+        }
+        assertTrue(OrderSnapshot.open(file).contains(9));
+    }
+}
@@ -67,8 +67,8 @@ public class OrderTest {
         var order = new Order(42);
         order.addItem(new LineItem(p, 1));
         final boolean[] called = {false};
-        PaymentStrategy fake = o -> called[0] = true;
-        order.pay(fake);
+        PaymentStrategy fake = request -> called[0] = true;
+        order.pay(fake, order.subtotal());
         assertTrue(called[0], "Payment strategy should be called");
     }
     
@@ -85,4 +85,77 @@ public class OrderTest {
         var order = new Order(123);
         assertEquals(123, order.id());
     }
+
+    @Test
+    void subtotal_follows_add_and_undo() {
+        var p1 = new SimpleProduct("A", "A", Money.of(2.50));
+        var p2 = new SimpleProduct("B", "B", Money.of(3.50));
+        var order = new Order(7);
+        order.addItem(new LineItem(p1, 2));
+        order.addItem(new LineItem(p2, 1));
+        assertEquals(Money.of(8.50), order.subtotal());
+
+        var removed = order.removeLastItem();
+        assertTrue(removed.isPresent());
+        assertEquals("B", removed.get().product().id());
+        assertEquals(Money.of(5.00), order.subtotal());
+        assertEquals(Money.of(5.50), order.totalWithTax(new FixedRateTaxPolicy(10)));
+
+        order.removeLastItem();
+        assertTrue(order.removeLastItem().isEmpty());
+        assertEquals(Money.zero(), order.subtotal());
+    }
+
+    @Test
+    void items_view_is_read_only_snapshot() {
+        var p = new SimpleProduct("A", "A", Money.of(1.00));
+        var order = new Order(8);
+        order.addItem(new LineItem(p, 1));
+        var before = order.items();
+        order.addItem(new LineItem(p, 2));
+        order.removeLastItem();
+        order.addItem(new LineItem(p, 3));
+
+        assertEquals(1, before.size());
+        assertEquals(2, order.items().size());
+        assertEquals(3, order.items().get(1).quantity());
+        assertThrows(UnsupportedOperationException.class, () -> order.items().add(new LineItem(p, 1)));
+    }
+
+    @Test
+    void concurrent_appends_and_reads_stay_consistent() throws Exception {
+        var p = new SimpleProduct("A", "A", Money.of(1.00));
+        var order = new Order(9);
+        int writers = 4, perWriter = 500;
+        var pool = java.util.concurrent.Executors.newFixedThreadPool(writers + 4);
+        var done = new java.util.concurrent.atomic.AtomicBoolean();
+        var failures = new java.util.concurrent.atomic.AtomicInteger();
+        try {
+            var futures = new java.util.ArrayList<java.util.concurrent.Future<?>>();
+            for (int r = 0; r < 4; r++) {
+                futures.add(pool.submit(() -> {
+                    while (!done.get()) {
+                        var snapshot = order.items();
+                        for (LineItem li : snapshot) {
+                            if (li == null) failures.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            var writes = new java.util.ArrayList<java.util.concurrent.Future<?>>();
+            for (int w = 0; w < writers; w++) {
+                writes.add(pool.submit(() -> {
+                    for (int i = 0; i < perWriter; i++) order.addItem(new LineItem(p, 1));
+                }));
+            }
+            for (var f : writes) f.get();
+            done.set(true);
+            for (var f : futures) f.get();
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(0, failures.get());
+        assertEquals(writers * perWriter, order.items().size());
+        assertEquals(Money.of(writers * perWriter), order.subtotal());
+    }
 }
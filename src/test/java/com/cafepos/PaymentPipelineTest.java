@@ -0,0 +1,171 @@
+package com.cafepos;
+
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.common.Money;
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+import com.cafepos.payment.*;
+import com.cafepos.payment.PaymentResult.Status;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PaymentPipelineTest {
+
+    private static Order order(long id) {
+        var order = new Order(id);
+        order.addItem(new LineItem(new SimpleProduct("P-ESP", "Espresso", Money.of(2.50)), 2));
+        return order;
+    }
+
+    @Test
+    void repeated_submissions_charge_once() {
+        var processor = new LocalPaymentProcessor();
+        try (var pipeline = new PaymentPipeline(processor)) {
+            var card = new CardPayment("1234567890123456", pipeline);
+            var order = order(1);
+            var first = order.payAsync(card, Money.of(5.50)).join();
+            var again = card.payAsync(new PaymentRequest(order, Money.of(5.50))).join();
+            assertEquals(Status.APPROVED, first.status());
+            assertEquals("order-1", first.idempotencyKey());
+            assertEquals(first.reference(), again.reference());
+            assertEquals(1, processor.approvals());
+            assertEquals("CARD", order.paymentType().orElseThrow());
+        }
+    }
+
+    @Test
+    void declined_payments_can_be_retried() {
+        var processor = new LocalPaymentProcessor(Set.of("bad-wallet"), 0);
+        try (var pipeline = new PaymentPipeline(processor)) {
+            var order = order(2);
+            var declined = order.payAsync(new WalletPayment("bad-wallet", pipeline), Money.of(5.50)).join();
+            assertEquals(Status.DECLINED, declined.status());
+            assertTrue(order.paymentType().isEmpty());
+            var approved = order.payAsync(new CardPayment("4000000000000002", pipeline), Money.of(5.50)).join();
+            assertEquals(Status.APPROVED, approved.status());
+            assertEquals(2, processor.calls());
+        }
+    }
+
+    @Test
+    void slow_processor_times_out_and_a_retry_gets_the_late_approval() throws Exception {
+        var release = new CountDownLatch(1);
+        var calls = new AtomicInteger();
+        PaymentProcessor slow = auth -> {
+            calls.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return PaymentResult.approved(auth.idempotencyKey(), auth.method(), auth.amount(), "REF-1");
+        };
+        try (var pipeline = new PaymentPipeline(slow, null, 2, 50)) {
+            var auth = new Authorization("order-3", "CARD", "**** 0002", Money.of(4.00));
+            assertEquals(Status.TIMEOUT, pipeline.submit(auth).get(5, TimeUnit.SECONDS).status());
+            release.countDown();
+            CompletableFuture<PaymentResult> retry;
+            do {
+                retry = pipeline.submit(auth);
+            } while (retry.get(5, TimeUnit.SECONDS).status() == Status.TIMEOUT);
+            assertEquals("REF-1", retry.join().reference());
+            assertEquals(1, calls.get());
+        }
+    }
+
+    @Test
+    void approvals_are_written_to_settlement_files_in_batches(@TempDir Path dir) throws Exception {
+        var settlement = new SettlementBatcher(dir, 2, 60_000);
+        try (var pipeline = new PaymentPipeline(new LocalPaymentProcessor(), settlement, 2, 5_000)) {
+            for (long id = 10; id < 13; id++) {
+                new CardPayment("1234567890123456", pipeline).payAsync(new PaymentRequest(order(id), Money.of(5.50))).join();
+            }
+            new CashPayment().payAsync(new PaymentRequest(order(13), Money.of(5.50))).join(); // cash is not settled
+        }
+        settlement.close();
+        List<Path> files;
+        try (Stream<Path> s = Files.list(dir)) {
+            files = s.sorted().toList();
+        }
+        assertEquals(List.of("settlement-000000.csv", "settlement-000001.csv"),
+                files.stream().map(p -> p.getFileName().toString()).toList());
+        assertEquals(3, Files.readAllLines(files.get(0)).size());
+        List<String> last = Files.readAllLines(files.get(1));
+        assertEquals(SettlementBatcher.HEADER, last.get(0));
+        assertTrue(last.get(1).matches("order-1\\d,CARD,LOCAL-\\d{8},550"), last.get(1));
+        assertEquals(3, settlement.settled());
+    }
+
+    @Test
+    void only_in_flight_payments_and_recent_approvals_are_remembered() {
+        var processor = new LocalPaymentProcessor(Set.of("bad-wallet"), 0);
+        try (var pipeline = new PaymentPipeline(processor, null, 2, 5_000, 2)) {
+            new WalletPayment("bad-wallet", pipeline).payAsync(new PaymentRequest(order(20), Money.of(1.00))).join();
+            assertEquals(0, pipeline.tracked());
+            for (long id = 21; id < 26; id++) {
+                new CardPayment("1234567890123456", pipeline).payAsync(new PaymentRequest(order(id), Money.of(1.00))).join();
+            }
+            assertEquals(2, pipeline.tracked());
+        }
+    }
+
+    @Test
+    void late_approval_after_settlement_closed_still_reaches_the_caller(@TempDir Path dir) {
+        var settlement = new SettlementBatcher(dir, 10, 60_000);
+        settlement.close();
+        try (var pipeline = new PaymentPipeline(new LocalPaymentProcessor(), settlement, 1, 5_000)) {
+            var result = new CardPayment("1234567890123456", pipeline)
+                    .payAsync(new PaymentRequest(order(30), Money.of(2.00))).join();
+            assertEquals(Status.APPROVED, result.status());
+            assertEquals(1, pipeline.settlementFailures());
+        }
+    }
+
+    @Test
+    void submission_rejected_by_a_closing_pipeline_is_not_left_in_flight() throws Exception {
+        var pipeline = new PaymentPipeline(new LocalPaymentProcessor(), null, 1, 5_000);
+        var auth = new Authorization("order-40", "CARD", "************3456", Money.of(2.00));
+        var error = new CompletableFuture<Throwable>();
+        Thread till = new Thread(() -> {
+            try {
+                pipeline.submit(auth);
+                error.complete(null);
+            } catch (RuntimeException e) {
+                error.complete(e);
+            }
+        });
+        synchronized (pipeline) {
+            till.start();
+            // wait until the till is past the closed check and waiting for the lock
+            while (till.getState() != Thread.State.BLOCKED) Thread.onSpinWait();
+            pipeline.close();
+        }
+        assertInstanceOf(IllegalStateException.class, error.get(5, TimeUnit.SECONDS));
+        assertEquals(0, pipeline.tracked());
+    }
+
+    @Test
+    void approval_reaches_the_caller_when_marking_the_order_paid_fails() {
+        try (var pipeline = new PaymentPipeline(new LocalPaymentProcessor())) {
+            var order = order(50);
+            order.register((o, event) -> {
+                throw new IllegalStateException("kitchen screen offline");
+            });
+            var result = order.payAsync(new CardPayment("1234567890123456", pipeline), Money.of(5.50)).join();
+            assertEquals(Status.APPROVED, result.status());
+            assertEquals("kitchen screen offline", order.markPaidFailure().getMessage());
+        }
+    }
+}
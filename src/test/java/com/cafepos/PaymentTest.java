@@ -4,6 +4,7 @@ import com.cafepos.catalog.*;
 import com.cafepos.common.*;
 import com.cafepos.domain.*;
 import com.cafepos.payment.*;
+import com.cafepos.pricing.*;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -16,13 +17,13 @@ public class PaymentTest {
         order.addItem(new LineItem(product, 1));
         
         CashPayment payment = new CashPayment();
-        assertDoesNotThrow(() -> payment.pay(order));
+        assertDoesNotThrow(() -> payment.pay(new PaymentRequest(order, Money.of(5.50))));
     }
     
     @Test
     void order_pay_null_strategy_throws_exception() {
         var order = new Order(1);
-        assertThrows(IllegalArgumentException.class, () -> order.pay(null));
+        assertThrows(IllegalArgumentException.class, () -> order.pay(null, Money.of(5.00)));
     }
     
     @Test
@@ -32,10 +33,33 @@ public class PaymentTest {
         order.addItem(new LineItem(product, 1));
         
         final Order[] receivedOrder = {null};
-        PaymentStrategy testStrategy = o -> receivedOrder[0] = o;
+        PaymentStrategy testStrategy = request -> receivedOrder[0] = request.order();
         
-        order.pay(testStrategy);
+        order.pay(testStrategy, order.subtotal());
         
         assertSame(order, receivedOrder[0]);
     }
-}
\ No newline at end of file
+
+    @Test
+    void checkout_prices_once_and_charges_the_receipt_total() {
+        int[] pricingCalls = {0};
+        DiscountPolicy loyalty = subtotal -> {
+            pricingCalls[0]++;
+            return subtotal.percent(5);
+        };
+        TaxPolicy tax = amount -> {
+            pricingCalls[0]++;
+            return amount.percent(10);
+        };
+        final Money[] charged = {null};
+        PaymentStrategy capturing = request -> charged[0] = request.amount();
+        var checkout = new com.cafepos.checkout.CheckoutService(new com.cafepos.factory.ProductFactory(),
+                new PricingService(loyalty, tax), new com.cafepos.checkout.ReceiptPrinter(), 10);
+
+        String receipt = checkout.checkout("LAT+L", 2, capturing);
+
+        assertEquals(2, pricingCalls[0]); // one discount and one tax lookup: the order was priced once
+        assertTrue(receipt.endsWith("Total: " + charged[0]), receipt);
+        assertTrue(receipt.contains("Discount: -"));
+    }
+}
@@ -1,8 +1,15 @@
 package com.cafepos;
 
+import com.cafepos.catalog.SimpleProduct;
 import com.cafepos.common.Money;
+import com.cafepos.domain.LineItem;
 import com.cafepos.pricing.*;
 import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class PricingUnitTests {
@@ -28,4 +35,63 @@ public class PricingUnitTests {
         assertEquals(Money.of(0.74), pr.tax());
         assertEquals(Money.of(8.15), pr.total());
     }
-}
\ No newline at end of file
+
+    @Test void batch_pricing_matches_single_pricing() {
+        DiscountPolicy[] discounts = { new LoyaltyPercentDiscount(5), new FixedCouponDiscount(Money.of(1.00)),
+                new NoDiscount(), subtotal -> Money.of(0.25) }; // last one uses the default cents bridge
+        long[] subtotals = new long[PricingService.PARALLEL_THRESHOLD * 3 + 7];
+        for (int i = 0; i < subtotals.length; i++) subtotals[i] = (i * 37L) % 5000;
+        for (DiscountPolicy discount : discounts) {
+            var pricing = new PricingService(discount, new FixedRateTaxPolicy(10));
+            long[] d = new long[subtotals.length], t = new long[subtotals.length], total = new long[subtotals.length];
+            long[] pd = new long[subtotals.length], pt = new long[subtotals.length], ptotal = new long[subtotals.length];
+            pricing.price(subtotals, d, t, total);
+            pricing.priceParallel(subtotals, pd, pt, ptotal);
+            for (int i = 0; i < subtotals.length; i++) {
+                var pr = pricing.price(Money.ofCents(subtotals[i]));
+                assertEquals(pr.discount().asCents(), d[i]);
+                assertEquals(pr.tax().asCents(), t[i]);
+                assertEquals(pr.total().asCents(), total[i]);
+            }
+            assertArrayEquals(d, pd);
+            assertArrayEquals(t, pt);
+            assertArrayEquals(total, ptotal);
+        }
+    }
+
+    @Test void batch_pricing_rejects_short_outputs() {
+        var pricing = new PricingService(new NoDiscount(), new FixedRateTaxPolicy(10));
+        assertThrows(IllegalArgumentException.class,
+                () -> pricing.price(new long[3], new long[3], new long[2], new long[3]));
+    }
+
+    @Test void line_pricing_matches_subtotal_pricing_for_plain_policies() {
+        var pricing = new PricingService(new LoyaltyPercentDiscount(5), new FixedRateTaxPolicy(10));
+        var items = List.of(new LineItem(new SimpleProduct("P-ESP", "Espresso", Money.of(2.50), "DRINK"), 2),
+                new LineItem(new SimpleProduct("P-MUF", "Muffin", Money.of(2.80), "FOOD"), 1));
+        var op = pricing.price(items);
+        assertEquals(pricing.price(Money.of(7.80)), op.totals());
+        assertEquals(Money.of(5.00), op.lines().get(0).lineTotal());
+        var drinks = op.category("DRINK").orElseThrow();
+        var food = op.category("FOOD").orElseThrow();
+        assertEquals(op.totals().discount(), drinks.discount().add(food.discount()));
+        assertEquals(op.totals().tax(), drinks.tax().add(food.tax()));
+        assertEquals(op.totals().total(), drinks.total().add(food.total()));
+    }
+
+    @Test void categories_can_be_excluded_and_taxed_differently() {
+        var pricing = new PricingService(new LoyaltyPercentDiscount(10, Set.of("FOOD")),
+                new CategoryTaxPolicy(10, Map.of("FOOD", 0)));
+        var items = List.of(new LineItem(new SimpleProduct("P-LAT", "Latte", Money.of(3.20), "DRINK"), 1),
+                new LineItem(new SimpleProduct("P-MUF", "Muffin", Money.of(2.80), "FOOD"), 1));
+        var op = pricing.price(items);
+        var drinks = op.category("DRINK").orElseThrow();
+        var food = op.category("FOOD").orElseThrow();
+        assertEquals(Money.of(0.32), drinks.discount());
+        assertEquals(Money.zero(), food.discount());
+        assertFalse(op.lines().get(1).discountable());
+        assertEquals(Money.of(0.29), drinks.tax()); // 10% of 2.88
+        assertEquals(Money.zero(), food.tax());
+        assertEquals(Money.of(6.00 - 0.32 + 0.29), op.totals().total());
+    }
+}
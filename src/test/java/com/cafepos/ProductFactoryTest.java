@@ -0,0 +1,130 @@
+package com.cafepos;
+
+import com.cafepos.common.Money;
+import com.cafepos.decorator.Priced;
+import com.cafepos.factory.ProductFactory;
+import com.cafepos.factory.RecipeRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductFactoryTest {
+
+    @Test
+    void recipes_are_normalized_before_parsing() {
+        var factory = new ProductFactory();
+        var p = factory.create(" lat + shot+OAT +  l ");
+        assertEquals("Latte + Extra Shot + Oat Milk (Large)", p.name());
+        assertEquals(Money.of(3.20 + 0.80 + 0.50 + 0.70), ((Priced) p).price());
+        assertSame(p, factory.create("LAT+SHOT+OAT+L"));
+    }
+
+    @Test
+    void repeated_recipes_hit_the_cache() {
+        var factory = new ProductFactory();
+        var first = factory.create("ESP+SHOT");
+        var second = factory.create("ESP+SHOT");
+        assertSame(first, second);
+        var stats = factory.cacheStats();
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.hits());
+        assertEquals(0.5, stats.hitRate());
+    }
+
+    @Test
+    void cache_is_bounded_lru() {
+        var factory = new ProductFactory(2);
+        var esp = factory.create("ESP");
+        factory.create("LAT");
+        factory.create("ESP");
+        factory.create("CAP"); // evicts LAT, the least recently used
+        assertSame(esp, factory.create("ESP"));
+        assertEquals(2, factory.cacheStats().entries());
+        assertEquals(3, factory.cacheStats().misses());
+        factory.create("LAT");
+        assertEquals(4, factory.cacheStats().misses());
+    }
+
+    @Test
+    void unknown_codes_are_rejected() {
+        var factory = new ProductFactory();
+        var ex = assertThrows(IllegalArgumentException.class, () -> factory.create("TEA+SHOT"));
+        assertEquals("Unknown base: TEA", ex.getMessage());
+        ex = assertThrows(IllegalArgumentException.class, () -> factory.create("ESP+SHOTS"));
+        assertEquals("Unknown addon: SHOTS", ex.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> factory.create("  "));
+    }
+
+    @Test
+    void recipes_compile_to_registry_codes() {
+        var registry = RecipeRegistry.defaults();
+        int[] codes = registry.compile("lat + shot+L");
+        assertEquals(3, codes.length);
+        assertArrayEquals(codes, registry.compile("LAT+SHOT+L"));
+        var p = registry.build(codes);
+        assertEquals("Latte + Extra Shot (Large)", p.name());
+        assertEquals(Money.of(4.70), ((Priced) p).price());
+    }
+
+    @Test
+    void registry_file_edits_are_picked_up_without_restart(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("recipes.properties");
+        Files.writeString(file, "base.ESP = P-ESP|Espresso|2.50\naddon.SHOT = Extra Shot|0.80\n");
+        var factory = new ProductFactory(file);
+        var before = factory.create("ESP+SHOT");
+        assertThrows(IllegalArgumentException.class, () -> factory.create("ESP+VAN"));
+        assertFalse(factory.reloadIfChanged());
+
+        Files.writeString(file, "base.ESP = P-ESP|Espresso|2.50\naddon.SHOT = Extra Shot|0.90\n"
+                + "addon.VAN = Vanilla|0.40\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+        assertTrue(factory.reloadIfChanged());
+        assertEquals(Money.of(2.90), ((Priced) factory.create("ESP+VAN")).price());
+        var after = factory.create("ESP+SHOT");
+        assertNotSame(before, after);
+        assertEquals(Money.of(3.40), ((Priced) after).price());
+    }
+
+    @Test
+    void a_bad_registry_edit_keeps_the_current_recipes(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("recipes.properties");
+        Files.writeString(file, "base.ESP = P-ESP|Espresso|2.50\n");
+        var factory = new ProductFactory(file);
+        long mtime = Files.getLastModifiedTime(file).toMillis();
+
+        Files.writeString(file, "base.ESP = P-ESP|Espresso|abc\n"); // half-saved edit
+        Files.setLastModifiedTime(file, FileTime.fromMillis(mtime + 1000));
+        assertFalse(factory.reloadIfChanged());
+        assertTrue(factory.lastReloadFailure().getMessage().contains("base.ESP"));
+        assertEquals(1, factory.reloadFailures());
+        assertEquals(Money.of(2.50), factory.create("ESP").basePrice());
+        assertFalse(factory.reloadIfChanged(), "the same broken file is not retried");
+
+        Files.writeString(file, "base.ESP = P-ESP|Espresso|2.60\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(mtime + 2000));
+        assertTrue(factory.reloadIfChanged());
+        assertNull(factory.lastReloadFailure());
+        assertEquals(Money.of(2.60), factory.create("ESP").basePrice());
+    }
+
+    @Test
+    void a_fix_saved_in_the_same_timestamp_tick_is_picked_up(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("recipes.properties");
+        Files.writeString(file, "base.ESP = P-ESP|Espresso|2.50\n");
+        var factory = new ProductFactory(file);
+        FileTime tick = FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000);
+
+        Files.writeString(file, "base.ESP = P-ESP|Espresso|2.x0\n"); // rejected, same size as the fix
+        Files.setLastModifiedTime(file, tick);
+        assertFalse(factory.reloadIfChanged());
+
+        Files.writeString(file, "base.ESP = P-ESP|Espresso|2.70\n");
+        Files.setLastModifiedTime(file, tick);
+        assertTrue(factory.reloadIfChanged());
+        assertEquals(Money.of(2.70), factory.create("ESP").basePrice());
+    }
+}
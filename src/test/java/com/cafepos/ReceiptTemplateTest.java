@@ -0,0 +1,51 @@
+package com.cafepos;
+
+import com.cafepos.app.ReceiptFormatter;
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.checkout.ReceiptPrinter;
+import com.cafepos.common.Money;
+import com.cafepos.domain.LineItem;
+import com.cafepos.pricing.FixedRateTaxPolicy;
+import com.cafepos.pricing.LoyaltyPercentDiscount;
+import com.cafepos.pricing.NoDiscount;
+import com.cafepos.pricing.PricingService;
+import com.cafepos.printing.ReceiptTemplate;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReceiptTemplateTest {
+    private final List<LineItem> items = List.of(
+            new LineItem(new SimpleProduct("P-ESP", "Espresso", Money.of(2.50)), 2),
+            new LineItem(new SimpleProduct("P-LAT", "Latte", Money.of(3.20)), 1));
+
+    @Test
+    void formatter_output_is_unchanged_for_both_entry_points() {
+        var pricing = new PricingService(new LoyaltyPercentDiscount(5), new FixedRateTaxPolicy(10));
+        var priced = pricing.price(items);
+        String expected = "Order #7\n"
+                + " - Espresso x2 = 5.00\n"
+                + " - Latte x1 = 3.20\n"
+                + "Subtotal: 8.20\n"
+                + "Discount: -0.41\n"
+                + "Tax (10%): 0.78\n"
+                + "Total: 8.57";
+        var formatter = new ReceiptFormatter();
+        assertEquals(expected, formatter.format(7, priced, 10));
+        assertEquals(expected, formatter.format(7, items, priced.totals(), 10));
+    }
+
+    @Test
+    void optional_lines_drop_out() {
+        var pr = new PricingService(new NoDiscount(), new FixedRateTaxPolicy(10)).price(Money.of(3.00));
+        var printer = new ReceiptPrinter();
+        assertEquals("Order (LAT) x1\nSubtotal: 3.00\nTax (10%): 0.30\nTotal: 3.30",
+                printer.format("LAT", 1, pr, 10));
+        assertEquals("Order (LAT) x1\nSubtotal: 3.00\nTax (10%): 0.30\nTotal: 3.30\nCash Paid: 5.00\nChange: 1.70",
+                printer.formatWithChange("LAT", 1, pr, 10, Money.of(5.00), Money.of(1.70)));
+        assertThrows(IllegalArgumentException.class, () -> ReceiptTemplate.compile("Total: {totl}"));
+        assertThrows(IllegalArgumentException.class, () -> ReceiptTemplate.compile("Total: {total"));
+    }
+}
@@ -0,0 +1,118 @@
+package com.cafepos;
+
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.app.CheckoutService;
+import com.cafepos.common.Money;
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+import com.cafepos.infra.InMemoryOrderRepository;
+import com.cafepos.factory.DiscountPolicyFactory;
+import com.cafepos.pricing.Basket;
+import com.cafepos.pricing.FixedRateTaxPolicy;
+import com.cafepos.pricing.NoDiscount;
+import com.cafepos.pricing.PricingRule;
+import com.cafepos.pricing.PricingService;
+import com.cafepos.pricing.RuleEngine;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RuleEngineTest {
+    private static final SimpleProduct ESP = new SimpleProduct("P-ESP", "Espresso", Money.of(2.50));
+    private static final SimpleProduct LAT = new SimpleProduct("P-LAT", "Latte", Money.of(3.20));
+    private static final LocalTime NOON = LocalTime.of(12, 0);
+
+    private static final List<PricingRule> RULES = List.of(
+            new PricingRule.Bogof("Espresso BOGOF", "P-ESP"),
+            new PricingRule.HappyHour("Happy hour", LocalTime.of(15, 0), LocalTime.of(17, 0), 20),
+            new PricingRule.Loyalty("Loyalty", 5),
+            new PricingRule.Coupon("Coupon", "COUPON1", Money.of(1.00)),
+            new PricingRule.TaxRate("VAT", 10));
+    private static final RuleEngine ENGINE = RuleEngine.compile(RULES);
+
+    @Test
+    void plain_basket_only_pays_tax() {
+        var q = ENGINE.price(Basket.of(List.of(new LineItem(LAT, 1)), NOON));
+        assertEquals(Money.of(3.20), q.pricing().subtotal());
+        assertEquals(Money.zero(), q.pricing().discount());
+        assertEquals(Money.of(0.32), q.pricing().tax());
+        assertEquals(Money.of(3.52), q.pricing().total());
+        assertEquals(List.of("VAT"), q.applied());
+    }
+
+    @Test
+    void promotions_stack_in_order() {
+        // 3 espressos + latte = 10.70; 1 espresso free -> 8.20
+        // happy hour 20% -> 6.56; loyalty 5% -> 6.23; coupon -> 5.23; VAT 0.52
+        var basket = new Basket(List.of(new LineItem(ESP, 3), new LineItem(LAT, 1)),
+                LocalTime.of(16, 30), true, "coupon1");
+        var q = ENGINE.price(basket);
+        assertEquals(Money.of(10.70), q.pricing().subtotal());
+        assertEquals(Money.of(5.47), q.pricing().discount());
+        assertEquals(Money.of(0.52), q.pricing().tax());
+        assertEquals(Money.of(5.75), q.pricing().total());
+        assertEquals(List.of("Espresso BOGOF", "Happy hour", "Loyalty", "Coupon", "VAT"), q.applied());
+    }
+
+    @Test
+    void coupon_is_capped_at_what_is_left() {
+        var cheap = new SimpleProduct("P-SYP", "Syrup shot", Money.of(0.40));
+        var q = ENGINE.price(Basket.of(List.of(new LineItem(cheap, 1)), NOON).withCoupon("COUPON1"));
+        assertEquals(Money.of(0.40), q.pricing().discount());
+        assertEquals(Money.zero(), q.pricing().total());
+    }
+
+    @Test
+    void equivalent_baskets_share_a_memoized_result() {
+        var engine = RuleEngine.compile(List.of(new PricingRule.Bogof("BOGOF", "P-ESP"), new PricingRule.TaxRate("VAT", 10)));
+        var first = engine.price(Basket.of(List.of(new LineItem(ESP, 2), new LineItem(LAT, 1)), NOON));
+        // same contents split and reordered, unknown coupon and loyalty the rules cannot see
+        var second = engine.price(new Basket(List.of(new LineItem(LAT, 1), new LineItem(ESP, 1), new LineItem(ESP, 1)),
+                LocalTime.of(9, 15), true, "NOPE"));
+        assertSame(first, second);
+        assertEquals(1, engine.cacheStats().misses());
+        assertEquals(1, engine.cacheStats().hits());
+    }
+
+    @Test
+    void unknown_discount_codes_are_rejected() {
+        var ex = assertThrows(IllegalArgumentException.class, () -> DiscountPolicyFactory.create("BOGUS"));
+        assertEquals("Unknown discount code: BOGUS", ex.getMessage());
+    }
+
+    @Test
+    void units_given_free_by_one_bogof_do_not_count_for_another() {
+        var engine = RuleEngine.compile(List.of(new PricingRule.Bogof("BOGOF", "P-ESP"),
+                new PricingRule.Bogof("Espresso week", "P-ESP")));
+        var q = engine.price(Basket.of(List.of(new LineItem(ESP, 4)), NOON));
+        assertEquals(Money.of(5.00), q.pricing().discount());
+        assertEquals(List.of("BOGOF"), q.applied());
+        // 5 espressos: the first deal takes 4 of them, the odd one is left at full price
+        assertEquals(Money.of(5.00), engine.price(Basket.of(List.of(new LineItem(ESP, 5)), NOON)).pricing().discount());
+    }
+
+    @Test
+    void checkout_prices_orders_with_the_rules() {
+        var repo = new InMemoryOrderRepository();
+        var order = new Order(7001);
+        order.addItem(new LineItem(ESP, 3));
+        order.addItem(new LineItem(LAT, 1));
+        repo.save(order);
+        var engine = RuleEngine.compile(RULES);
+        var pricing = new PricingService(new NoDiscount(), new FixedRateTaxPolicy(10), engine);
+        var fourThirty = Clock.fixed(Instant.parse("2026-01-05T16:30:00Z"), ZoneOffset.UTC);
+        var checkout = new CheckoutService(repo, pricing, fourThirty);
+
+        String receipt = checkout.checkout(7001, 10, true, "COUPON1");
+        assertTrue(receipt.contains("Discount: -5.47"), receipt);
+        assertTrue(receipt.contains("Total: 5.75"), receipt);
+        checkout.checkout(7001, 10, true, "COUPON1");
+        assertEquals(1, engine.cacheStats().hits());
+    }
+}
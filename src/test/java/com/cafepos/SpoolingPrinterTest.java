@@ -0,0 +1,144 @@
+package com.cafepos;
+
+import com.cafepos.printing.PrinterDevice;
+import com.cafepos.printing.SpoolingPrinter;
+import org.junit.jupiter.api.Test;
+import vendor.legacy.LegacyThermalPrinter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpoolingPrinterTest {
+    private static final String END = "\n\u001DV\u0001";
+
+    /** Captures each device write as a string; the first write waits for the gate. */
+    private static final class CapturingDevice implements PrinterDevice {
+        final List<String> writes = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch gate;
+
+        CapturingDevice(boolean open) {
+            gate = new CountDownLatch(open ? 0 : 1);
+        }
+
+        @Override
+        public void write(ByteBuffer payload) {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] bytes = new byte[payload.remaining()];
+            payload.get(bytes);
+            writes.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void receipts_queued_together_share_one_device_write() throws Exception {
+        var device = new CapturingDevice(false);
+        try (var spooler = new SpoolingPrinter(device, 16, 1024)) {
+            spooler.printReceipt("first");
+            while (spooler.stats().queueDepth() > 0) Thread.onSpinWait(); // writer is now blocked on the device
+            spooler.printReceipt("second €");
+            spooler.printReceipt("third");
+            device.gate.countDown();
+            assertTrue(spooler.flush(5, TimeUnit.SECONDS));
+            assertEquals(List.of("first" + END, "second €" + END + "third" + END), device.writes);
+            var stats = spooler.stats();
+            assertEquals(3, stats.printed());
+            assertEquals(2, stats.writes());
+            assertTrue(stats.maxLatencyNanos() >= stats.lastLatencyNanos());
+        }
+    }
+
+    @Test
+    void batches_split_when_the_buffer_fills_and_large_receipts_still_print() throws Exception {
+        var device = new CapturingDevice(false);
+        String big = "x".repeat(500);
+        try (var spooler = new SpoolingPrinter(device, 16, 64)) {
+            spooler.printReceipt("a");
+            while (spooler.stats().queueDepth() > 0) Thread.onSpinWait();
+            spooler.printReceipt("b".repeat(40));
+            spooler.printReceipt("c".repeat(40));
+            spooler.printReceipt(big);
+            device.gate.countDown();
+            assertTrue(spooler.flush(5, TimeUnit.SECONDS));
+        }
+        assertEquals(List.of("a" + END, "b".repeat(40) + END, "c".repeat(40) + END, big + END), device.writes);
+    }
+
+    @Test
+    void a_lone_surrogate_is_replaced_instead_of_cutting_the_receipt_short() throws Exception {
+        var device = new CapturingDevice(false);
+        device.gate.countDown();
+        try (var spooler = new SpoolingPrinter(device, 16, 1024)) {
+            spooler.printReceipt("Latte \uD800 x2\nTotal: 7.04");
+            assertTrue(spooler.flush(5, TimeUnit.SECONDS));
+        }
+        assertEquals(List.of("Latte ? x2\nTotal: 7.04" + END), device.writes);
+    }
+
+    @Test
+    void a_full_queue_makes_the_till_wait() throws Exception {
+        var device = new CapturingDevice(false);
+        try (var spooler = new SpoolingPrinter(device, 1, 1024)) {
+            spooler.printReceipt("1"); // taken by the writer
+            while (spooler.stats().queueDepth() > 0) Thread.onSpinWait();
+            spooler.printReceipt("2"); // fills the queue
+            var third = new Thread(() -> spooler.printReceipt("3"));
+            third.start();
+            third.join(200);
+            assertTrue(third.isAlive(), "third receipt should wait for room");
+            device.gate.countDown();
+            third.join(5000);
+            assertFalse(third.isAlive());
+            assertTrue(spooler.flush(5, TimeUnit.SECONDS));
+            assertEquals(3, spooler.stats().printed());
+        }
+    }
+
+    @Test
+    void legacy_device_receives_the_bytes() throws Exception {
+        try (var spooler = new SpoolingPrinter(PrinterDevice.legacy(new LegacyThermalPrinter()))) {
+            spooler.printReceipt("Total: 3.52");
+            assertTrue(spooler.flush(5, TimeUnit.SECONDS));
+            assertEquals(1, spooler.stats().writes());
+        }
+        assertThrows(IllegalArgumentException.class, () -> new SpoolingPrinter(null));
+    }
+
+    @Test
+    void receipts_accepted_while_closing_are_still_printed() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            var accepted = new java.util.concurrent.atomic.AtomicInteger();
+            var spooler = new SpoolingPrinter(new CapturingDevice(true), 4, 1024);
+            var threads = new ArrayList<Thread>();
+            for (int t = 0; t < 4; t++) {
+                var thread = new Thread(() -> {
+                    while (true) {
+                        try {
+                            spooler.printReceipt("r");
+                            accepted.incrementAndGet();
+                        } catch (IllegalStateException closed) {
+                            return;
+                        }
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            Thread.sleep(2);
+            spooler.close();
+            for (Thread t : threads) t.join(5000);
+            assertTrue(spooler.flush(1, TimeUnit.SECONDS));
+            assertEquals(accepted.get(), spooler.stats().printed());
+        }
+    }
+}
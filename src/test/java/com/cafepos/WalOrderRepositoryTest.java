@@ -0,0 +1,210 @@
+package com.cafepos;
+
+import com.cafepos.catalog.SimpleProduct;
+import com.cafepos.common.Money;
+import com.cafepos.domain.LineItem;
+import com.cafepos.domain.Order;
+import com.cafepos.domain.OrderStatus;
+import com.cafepos.infra.WalOrderRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WalOrderRepositoryTest {
+    @TempDir Path dir;
+
+    private static LineItem line(String id, double price, int qty) {
+        return new LineItem(new SimpleProduct(id, "Product " + id, Money.of(price)), qty);
+    }
+
+    @Test
+    void open_orders_survive_restart() {
+        try (var repo = new WalOrderRepository(dir)) {
+            var order = new Order(1001);
+            order.addItem(line("A", 2.50, 2));
+            repo.save(order);
+            order.addItem(line("B", 3.20, 1));
+            order.addItem(line("C", 1.00, 1));
+            order.removeLastItem();
+            repo.save(order);
+        }
+        try (var repo = new WalOrderRepository(dir)) {
+            var restored = repo.findById(1001).orElseThrow();
+            assertEquals(2, restored.items().size());
+            assertEquals("Product B", restored.items().get(1).product().name());
+            assertEquals(Money.of(8.20), restored.subtotal());
+        }
+    }
+
+    @Test
+    void paid_orders_stay_readable_after_compaction() throws Exception {
+        try (var repo = new WalOrderRepository(dir, 1, 1024)) {
+            var paid = new Order(1);
+            paid.addItem(line("A", 2.50, 1));
+            paid.addItem(line("C", 1.00, 1));
+            paid.removeLastItem();
+            repo.save(paid);
+            var open = new Order(2);
+            open.addItem(line("B", 3.00, 1));
+            repo.save(open);
+            paid.markPaid();
+        }
+        for (int restart = 0; restart < 2; restart++) {
+            try (var repo = new WalOrderRepository(dir)) {
+                var paid = repo.findById(1).orElseThrow();
+                assertEquals(OrderStatus.PAID, paid.status());
+                assertEquals(1, paid.items().size());
+                assertEquals(Money.of(2.50), paid.subtotal());
+                assertEquals(Money.of(3.00), repo.findById(2).orElseThrow().subtotal());
+            }
+        }
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void segments_roll_and_compact_under_load() throws Exception {
+        try (var repo = new WalOrderRepository(dir, 8, 2048)) {
+            for (long id = 1; id <= 200; id++) {
+                var order = new Order(id);
+                order.addItem(line("P" + id, 1.00, 1));
+                repo.save(order);
+                order.markPaid();
+            }
+            var open = new Order(500);
+            open.addItem(line("X", 4.00, 1));
+            repo.save(open);
+        }
+        long bytes;
+        try (var files = Files.list(dir)) {
+            bytes = files.mapToLong(p -> p.toFile().length()).sum();
+        }
+        assertTrue(bytes < 200 * 100, "log should stay near the live data size, was " + bytes);
+        try (var repo = new WalOrderRepository(dir)) {
+            assertEquals(Money.of(4.00), repo.findById(500).orElseThrow().subtotal());
+            for (long id = 1; id <= 200; id++) {
+                var paid = repo.findById(id).orElseThrow();
+                assertEquals(OrderStatus.PAID, paid.status());
+                assertEquals(Money.of(1.00), paid.subtotal());
+            }
+        }
+    }
+
+    @Test
+    void torn_tail_is_ignored_on_replay() throws Exception {
+        try (var repo = new WalOrderRepository(dir)) {
+            var order = new Order(7);
+            order.addItem(line("A", 2.00, 1));
+            repo.save(order);
+        }
+        Path segment;
+        try (var files = Files.list(dir)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        Files.write(segment, new byte[] {0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+        try (var repo = new WalOrderRepository(dir)) {
+            assertEquals(Money.of(2.00), repo.findById(7).orElseThrow().subtotal());
+            var order = repo.findById(7).orElseThrow();
+            order.addItem(line("B", 1.00, 1));
+            repo.save(order);
+        }
+        try (var repo = new WalOrderRepository(dir)) {
+            assertEquals(Money.of(3.00), repo.findById(7).orElseThrow().subtotal());
+        }
+    }
+
+    @Test
+    void saving_a_paid_order_again_keeps_it_closed() throws Exception {
+        Path resaved = dir.resolve("resaved"), paidOnly = dir.resolve("paid-only");
+        for (Path d : new Path[] {resaved, paidOnly}) {
+            try (var repo = new WalOrderRepository(d)) {
+                var order = new Order(1);
+                order.addItem(line("A", 2.50, 1));
+                order.addItem(line("B", 1.00, 2));
+                repo.save(order);
+                order.markPaid(order.subtotal());
+                if (d == resaved) repo.save(order);
+                repo.compact();
+            }
+        }
+        assertEquals(logBytes(paidOnly), logBytes(resaved), "a re-saved paid order is still one closed record");
+        try (var repo = new WalOrderRepository(resaved)) {
+            var order = repo.findById(1).orElseThrow();
+            assertEquals(OrderStatus.PAID, order.status());
+            long before = logBytes(resaved);
+            repo.save(order);
+            repo.sync();
+            assertEquals(before, logBytes(resaved));
+        }
+    }
+
+    @Test
+    void an_order_first_saved_after_payment_is_closed() {
+        try (var repo = new WalOrderRepository(dir)) {
+            var order = new Order(4);
+            order.addItem(line("A", 3.00, 1));
+            order.markPaid(order.subtotal());
+            repo.save(order);
+        }
+        try (var repo = new WalOrderRepository(dir)) {
+            var order = repo.findById(4).orElseThrow();
+            assertEquals(OrderStatus.PAID, order.status());
+            assertEquals(Money.of(3.00), order.subtotal());
+        }
+    }
+
+    @Test
+    void restart_after_an_interrupted_compaction() throws Exception {
+        try (var repo = new WalOrderRepository(dir)) {
+            var order = new Order(1);
+            order.addItem(line("A", 2.00, 1));
+            repo.save(order);
+        }
+        Path first;
+        try (var files = Files.list(dir)) {
+            first = files.findFirst().orElseThrow();
+        }
+        byte[] leftover = Files.readAllBytes(first);
+        try (var repo = new WalOrderRepository(dir)) {
+            var order = repo.findById(1).orElseThrow();
+            order.addItem(line("B", 1.00, 1));
+            repo.save(order);
+            order.markPaid(order.subtotal());
+            repo.compact();
+        }
+        Files.write(first, leftover); // the crash came before the old segment was deleted
+        try (var repo = new WalOrderRepository(dir)) {
+            var order = repo.findById(1).orElseThrow();
+            assertEquals(OrderStatus.PAID, order.status());
+            assertEquals(Money.of(3.00), order.subtotal());
+        }
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+
+        // a segment whose create records were lost: the orphaned changes are skipped
+        ByteBuffer log = ByteBuffer.wrap(leftover);
+        int createRecord = 8 + log.getInt(0);
+        Path orphans = dir.resolve("orphans");
+        Files.createDirectories(orphans);
+        Files.write(orphans.resolve("wal-000000000001.log"),
+                Arrays.copyOfRange(leftover, createRecord, leftover.length));
+        try (var repo = new WalOrderRepository(orphans)) {
+            assertTrue(repo.findById(1).isEmpty());
+        }
+    }
+
+    private static long logBytes(Path d) throws Exception {
+        try (var files = Files.list(d)) {
+            return files.mapToLong(p -> p.toFile().length()).sum();
+        }
+    }
+}
@@ -65,9 +65,10 @@ public class Week7IntegrationTest {
         var product = new ProductFactory().create("LAT");
         order.addItem(new LineItem(product, 1));
         
-        assertDoesNotThrow(() -> new CardPayment("1234567890123456").pay(order));
-        assertDoesNotThrow(() -> new CashPayment(Money.of(5.00)).pay(order));
-        assertDoesNotThrow(() -> new WalletPayment("wallet-123").pay(order));
+        var request = new PaymentRequest(order, order.subtotal());
+        assertDoesNotThrow(() -> new CardPayment("1234567890123456").pay(request));
+        assertDoesNotThrow(() -> new CashPayment(Money.of(5.00)).pay(request));
+        assertDoesNotThrow(() -> new WalletPayment("wallet-123").pay(request));
     }
     
     @Test